@@ -0,0 +1,16 @@
+package com.bee.cookwithfriends.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Immutable principal of an authenticated request, built from the claims of the access token.
+ * Holds no lazy collections and needs no database lookup.
+ */
+@Getter
+@AllArgsConstructor
+public final class AuthenticatedUser {
+    private final int id;
+    private final String username;
+    private final String email;
+}
@@ -25,6 +25,7 @@ public class AuthenticationProviderConfig {
 
         authProvider.setUserDetailsService(this.userDetailsService);
         authProvider.setPasswordEncoder(this.passwordEncoder);
+        authProvider.setUserDetailsPasswordService(this.userDetailsService); // Stores the rehashed password when the BCrypt strength was raised
 
         return authProvider;
     }
@@ -1,24 +1,47 @@
 package com.bee.cookwithfriends.config;
 
 import com.bee.cookwithfriends.entity.User;
-import com.bee.cookwithfriends.repositories.UserRepository;
+import com.bee.cookwithfriends.exceptions.RevokedRefreshTokenException;
+import com.bee.cookwithfriends.service.TokenRevocationService;
+import com.bee.cookwithfriends.service.UserCache;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
+    //Claims that allow building the principal without a database lookup
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String USERNAME_CLAIM = "username";
+
+    //Claim that separates access tokens from refresh tokens, so that neither can be used in place of the other
+    public static final String TOKEN_TYPE_CLAIM = "typ";
+    public static final String ACCESS_TOKEN_TYPE = "access";
+    public static final String REFRESH_TOKEN_TYPE = "refresh";
+
     @Value("${security.jwt.secret-key}")
     private String secretKey;
 
@@ -28,20 +51,83 @@ public class JwtService {
     @Value("${security.jwt.refresh-token-expiration}")
     private long jwtRefreshExpiration;
 
-    private final UserRepository userRepository;
+    @Value("${security.jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+
+    private final UserCache userCache;
+    private final TokenRevocationService revocationService;
+
+    //Built once from the secret, both are thread-safe
+    private Key signInKey;
+    private JwtParser parser;
 
-    public JwtService(UserRepository userRepository){
-        this.userRepository = userRepository;
+    //SHA-256 digest of a token -> result of its verification, kept until the token expires or is the least recently used one
+    private final LinkedHashMap<String, VerifiedToken> verifiedTokens = new LinkedHashMap<>(16, 0.75f, true) { // Access order for LRU eviction
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+            return size() > verifiedCacheSize;
+        }
+    };
+
+    public JwtService(UserCache userCache, TokenRevocationService revocationService){
+        this.userCache = userCache;
+        this.revocationService = revocationService;
     }
 
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+        signInKey = Keys.hmacShaKeyFor(keyBytes);
+        parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+    }
+
+    /**
+     * Parses and verifies a token once and returns its content.
+     * Tokens that were verified before are answered from the cache without checking the signature again.
+     * @param token The compact JWT.
+     * @return The verified token.
+     * @throws io.jsonwebtoken.JwtException If the token is malformed, has an invalid signature or is expired.
+     */
+    public VerifiedToken validateToken(String token) {
+        String digest = digest(token);
+
+        synchronized (verifiedTokens) {
+            VerifiedToken cached = verifiedTokens.get(digest);
+            if (cached != null) {
+                if (cached.getExpiration().after(new Date())) {
+                    return cached;
+                }
+                verifiedTokens.remove(digest); // Expired, parsing again throws the ExpiredJwtException
+            }
+        }
+
+        Claims claims = extractAllClaims(token);
+        VerifiedToken verified = new VerifiedToken(
+                claims.getSubject(),
+                claims.get(USER_ID_CLAIM, Integer.class),
+                claims.get(USERNAME_CLAIM, String.class),
+                claims.get(TOKEN_TYPE_CLAIM, String.class),
+                claims.getId(),
+                claims.getIssuedAt(),
+                claims.getExpiration(),
+                claims
+        );
 
+        if (verified.getExpiration() != null) {
+            synchronized (verifiedTokens) {
+                verifiedTokens.put(digest, verified); // Evicts the least recently used token when full
+            }
+        }
+
+        return verified;
+    }
 
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return validateToken(token).getSubject();
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = validateToken(token).getClaims();
         return claimsResolver.apply(claims);
     }
 
@@ -51,7 +137,7 @@ public class JwtService {
     }
 
     public String generateAccessToken(Map<String, Object> extraClaims, User user) {
-        return buildToken(extraClaims, user, jwtAccessExpiration);
+        return buildToken(extraClaims, UserCache.toPrincipal(user), ACCESS_TOKEN_TYPE, jwtAccessExpiration);
     }
 
     public long getAccessExpirationTime() {
@@ -64,65 +150,188 @@ public class JwtService {
     }
 
     public String generateRefreshToken(Map<String, Object> extraClaims, User user) {
-        return buildToken(extraClaims, user, jwtRefreshExpiration);
+        return buildRefreshToken(extraClaims, UserCache.toPrincipal(user));
     }
 
     public long getRefreshExpirationTime() {
         return jwtRefreshExpiration;
     }
 
-    //refreshing the accessToken
-    public String refreshAccessToken(String refreshToken){
-        String username = extractUsername(refreshToken);
-        User user = userRepository.findByUsername(username);
+    /**
+     * Exchanges a refresh token for a new access token and a new refresh token.
+     * The presented refresh token is revoked, so every refresh token can be used only once.
+     * @param refreshToken The current refresh token.
+     * @return The new access and refresh token.
+     * @throws RevokedRefreshTokenException If the token is no refresh token or was already used or revoked.
+     */
+    public TokenPair rotateRefreshToken(String refreshToken){
+        VerifiedToken verified = validateToken(refreshToken);
+
+        if (!verified.isRefreshToken() || !revocationService.revoke(verified.getTokenId(), verified.getExpiration())) {
+            throw new RevokedRefreshTokenException("Refresh token has been revoked");
+        }
+
+        AuthenticatedUser user = toPrincipal(verified); // From the claims, no database lookup
+        return new TokenPair(
+                buildToken(new HashMap<>(), user, ACCESS_TOKEN_TYPE, jwtAccessExpiration),
+                buildRefreshToken(new HashMap<>(), user)
+        );
+    }
+
+    /**
+     * Issues a new access token for a refresh token without rotating it.
+     * Used to check the login on page load, where several tabs or components may present the same cookie at once.
+     * @param refreshToken The current refresh token.
+     * @return The new access token.
+     * @throws RevokedRefreshTokenException If the token is no refresh token or was already used or revoked.
+     */
+    public String issueAccessToken(String refreshToken){
+        VerifiedToken verified = validateToken(refreshToken);
 
-        if(user == null){
-            throw new UsernameNotFoundException("User not found", null);
+        if (!verified.isRefreshToken() || revocationService.isRevoked(verified.getTokenId())) {
+            throw new RevokedRefreshTokenException("Refresh token has been revoked");
         }
 
-        return generateAccessToken(user);
+        return buildToken(new HashMap<>(), toPrincipal(verified), ACCESS_TOKEN_TYPE, jwtAccessExpiration);
+    }
+
+    /**
+     * Revokes a refresh token on logout. Invalid or expired tokens need no revocation and are ignored.
+     * @param refreshToken The refresh token.
+     */
+    public void revokeRefreshToken(String refreshToken){
+        try {
+            VerifiedToken verified = validateToken(refreshToken);
+
+            if (verified.isRefreshToken()) {
+                revocationService.revoke(verified.getTokenId(), verified.getExpiration());
+            }
+        } catch (JwtException exception) {
+            // Nothing to revoke
+        }
+    }
+
+    /**
+     * Builds the principal of a verified token from its claims.
+     * Tokens issued without the user claims fall back to the user cache.
+     * @param verified The verified token.
+     * @return The principal of the token owner.
+     */
+    public AuthenticatedUser toPrincipal(VerifiedToken verified) {
+        if (verified.getUserId() != null && verified.getUsername() != null) {
+            return new AuthenticatedUser(verified.getUserId(), verified.getUsername(), verified.getSubject());
+        }
+
+        return userCache.getByEmail(verified.getSubject());
+    }
+
+    private String buildRefreshToken(Map<String, Object> extraClaims, AuthenticatedUser user) {
+        Map<String, Object> claims = new HashMap<>(extraClaims);
+        claims.put(Claims.ID, UUID.randomUUID().toString()); // Token ID used for rotation and revocation
+        return buildToken(claims, user, REFRESH_TOKEN_TYPE, jwtRefreshExpiration);
     }
 
     private String buildToken(
             Map<String, Object> extraClaims,
-            User user,
+            AuthenticatedUser user,
+            String tokenType,
             long expiration
     ) {
         return Jwts
                 .builder()
                 .setClaims(extraClaims)
+                .claim(TOKEN_TYPE_CLAIM, tokenType)
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(USERNAME_CLAIM, user.getUsername())
                 .setSubject(user.getEmail())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public boolean isTokenValid(String token, User user) {
-        final String username = extractUsername(token);
-        return (username.equals(user.getEmail())) && !isTokenExpired(token);
+    /**
+     * Verifies a token presented as bearer token. Refresh tokens are rejected, so that a revoked refresh token
+     * or a cookie copied before logout cannot authenticate API calls. Tokens issued before the type claim
+     * are only accepted if they live no longer than an access token, as the refresh tokens of that time had no ID either.
+     * @param token The compact JWT.
+     * @return The verified access token.
+     * @throws UnsupportedJwtException If the token is no access token.
+     */
+    public VerifiedToken validateAccessToken(String token) {
+        VerifiedToken verified = validateToken(token);
+
+        if (!verified.isAccessToken() || (verified.getTokenType() == null && !livesAsLongAsAccessToken(verified))) {
+            throw new UnsupportedJwtException("Refresh tokens cannot be used as bearer tokens");
+        }
+
+        return verified;
     }
 
+    private boolean livesAsLongAsAccessToken(VerifiedToken verified) {
+        if (verified.getIssuedAt() == null || verified.getExpiration() == null) {
+            return false;
+        }
+        long lifetime = verified.getExpiration().getTime() - verified.getIssuedAt().getTime();
+        return lifetime <= jwtAccessExpiration + 1000; // Both claims are truncated to seconds
+    }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public boolean isTokenValid(String token, User user) {
+        final VerifiedToken verified = validateToken(token); // Throws if the token is expired
+        return verified.getSubject().equals(user.getEmail());
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    //Drops expired tokens from the verification cache
+    @Scheduled(fixedDelayString = "${security.jwt.verified-cache-cleanup-interval:60000}")
+    public void evictExpiredTokens() {
+        Date now = new Date();
+        synchronized (verifiedTokens) {
+            verifiedTokens.values().removeIf(verified -> !verified.getExpiration().after(now));
+        }
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+        return parser
                 .parseClaimsJws(token)
                 .getBody();
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+
+    //Result of a successful token verification
+    @Getter
+    @AllArgsConstructor
+    public static class VerifiedToken {
+        private final String subject;
+        private final Integer userId; // Null for tokens issued without the user claims
+        private final String username;
+        private final String tokenType; // Null for tokens issued before the type claim
+        private final String tokenId; // Only set for refresh tokens
+        private final Date issuedAt;
+        private final Date expiration;
+        private final Claims claims;
+
+        public boolean isRefreshToken() {
+            return tokenId != null && (tokenType == null || REFRESH_TOKEN_TYPE.equals(tokenType));
+        }
+
+        public boolean isAccessToken() {
+            return tokenType == null ? tokenId == null : ACCESS_TOKEN_TYPE.equals(tokenType); // Untyped tokens with an ID are refresh tokens, see validateAccessToken for those without
+        }
+    }
+
+    //Access token together with the refresh token that replaces the used one
+    @Getter
+    @AllArgsConstructor
+    public static class TokenPair {
+        private final String accessToken;
+        private final String refreshToken;
     }
 }
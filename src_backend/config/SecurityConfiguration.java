@@ -1,5 +1,6 @@
 package com.bee.cookwithfriends.config;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
@@ -29,8 +30,12 @@ public class SecurityConfiguration {
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable)
-                .authorizeHttpRequests(authorize -> authorize.requestMatchers("/auth/**")
+                .authorizeHttpRequests(authorize -> authorize.dispatcherTypeMatchers(DispatcherType.ASYNC)
+                        .permitAll() // Completion of the event streams, the request was authorized when the stream was opened
+                        .requestMatchers("/auth/**")
                         .permitAll()
+                        .requestMatchers("/recipe/import", "/admin/**")
+                        .hasRole(JwtAuthenticationFilter.ADMIN_ROLE) // Bulk seeding and statistics, only for the configured admin accounts
                         .anyRequest()
                         .authenticated())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
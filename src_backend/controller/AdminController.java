@@ -0,0 +1,38 @@
+package com.bee.cookwithfriends.controller;
+
+import com.bee.cookwithfriends.dto.StatsDTO;
+import com.bee.cookwithfriends.service.PasswordHashingService;
+import com.bee.cookwithfriends.service.RecipeDetailCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller for operational endpoints, restricted to admin accounts.
+ */
+@RequestMapping("/admin")
+@RestController
+public class AdminController {
+    private final RecipeDetailCache detailCache;
+    private final PasswordHashingService passwordHashingService;
+
+    /**
+     * Constructor for AdminController.
+     * @param detailCache The cache of assembled recipe details.
+     * @param passwordHashingService The executor for the password hashing.
+     */
+    public AdminController(RecipeDetailCache detailCache, PasswordHashingService passwordHashingService) {
+        this.detailCache = detailCache;
+        this.passwordHashingService = passwordHashingService;
+    }
+
+    /**
+     * Endpoint to get the statistics of the recipe detail cache and the password hashing executor.
+     * @return A ResponseEntity containing a snapshot of the statistics.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<StatsDTO> stats() {
+        return ResponseEntity.ok(new StatsDTO(detailCache.stats(), passwordHashingService.stats()));
+    }
+}
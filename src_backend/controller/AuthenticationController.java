@@ -1,6 +1,7 @@
 package com.bee.cookwithfriends.controller;
 
 import com.bee.cookwithfriends.config.JwtService;
+import com.bee.cookwithfriends.dto.user.AvailabilityDTO;
 import com.bee.cookwithfriends.dto.user.LoginResponse;
 import com.bee.cookwithfriends.dto.user.LoginUserDTO;
 import com.bee.cookwithfriends.dto.user.RegisterUserDTO;
@@ -51,6 +52,20 @@ public class AuthenticationController {
         return ResponseEntity.ok(loginResponse);
     }
 
+    /**
+     * Endpoint for checking if a username and an email are still available, for live validation of the signup form.
+     * @param username The username to check.
+     * @param email The email to check.
+     * @return An AvailabilityDTO with the result for every given value.
+     */
+    @GetMapping("/available")
+    public AvailabilityDTO available(
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String email
+    ) {
+        return authenticationService.checkAvailability(username, email);
+    }
+
     /**
      * Endpoint for user login.
      * @param loginUserDTO The DTO containing user login credentials.
@@ -68,11 +83,7 @@ public class AuthenticationController {
 
         // Create refresh token and store it in an HttpOnly cookie
         String jwtRefreshToken = jwtService.generateRefreshToken(authenticatedUser);
-        ResponseCookie cookie = ResponseCookie.from("jwtRefreshToken", jwtRefreshToken)
-                .httpOnly(true)
-                .path("/")
-                .maxAge((jwtService.getRefreshExpirationTime() / 1000))
-                .build();
+        ResponseCookie cookie = refreshTokenCookie(jwtRefreshToken, jwtService.getRefreshExpirationTime() / 1000);
 
         HttpHeaders headers = new HttpHeaders();
         headers.set("Set-Cookie", cookie.toString());
@@ -94,35 +105,49 @@ public class AuthenticationController {
 
     /**
      * Endpoint for checking if the user is logged in.
+     * The refresh token is not rotated, so concurrent checks with the same cookie all succeed.
      * @param request The HttpServletRequest object.
-     * @return A ResponseEntity containing the login response with the refreshed access token and expiration time.
+     * @return A ResponseEntity containing the login response with a new access token and expiration time.
      * @throws NoRefreshTokenException If no refresh token is found.
      */
     @GetMapping("/checkLogin")
     @ResponseStatus(HttpStatus.FORBIDDEN)
     public ResponseEntity<LoginResponse> checkLogin(HttpServletRequest request) throws NoRefreshTokenException {
-        return useRefreshToken(request); // Delegate to the useRefreshToken method
+        String refreshToken = getCookie(request, "jwtRefreshToken"); // Get the refresh token from the cookies
+
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            throw new NoRefreshTokenException("No refresh token found"); // Throw an exception if no refresh token is found
+        }
+
+        LoginResponse loginResponse = new LoginResponse();
+        loginResponse.setToken(jwtService.issueAccessToken(refreshToken)); // Set the new token in the response
+        loginResponse.setExpires(jwtService.getAccessExpirationTime()); // Set the new token expiration time
+
+        return ResponseEntity.ok(loginResponse);
     }
 
     /**
-     * Endpoint for logging out the user by invalidating the refresh token.
+     * Endpoint for logging out the user by revoking and clearing the refresh token.
      * @param request The HttpServletRequest object.
      * @return A ResponseEntity indicating a successful logout.
      */
     @GetMapping("/logout")
     public ResponseEntity<?> logout(HttpServletRequest request) {
+        String refreshToken = getCookie(request, "jwtRefreshToken");
+
+        if (refreshToken != null && !refreshToken.isEmpty()) {
+            jwtService.revokeRefreshToken(refreshToken); // Revoke the token, so a copy of the cookie cannot be used anymore
+        }
+
         // Create an empty HttpOnly cookie with a max age of 0 to invalidate the refresh token
-        ResponseCookie cookie = ResponseCookie.from("jwtRefreshToken", "")
-                .httpOnly(true)
-                .path("/")
-                .maxAge(0)
-                .build();
+        ResponseCookie cookie = refreshTokenCookie("", 0);
 
         return ResponseEntity.ok().header(HttpHeaders.SET_COOKIE, cookie.toString()).build();
     }
 
     /**
      * Private method to use the refresh token to get a new access token.
+     * The refresh token is rotated and the new one is returned in the cookie.
      * @param request The HttpServletRequest object.
      * @return A ResponseEntity containing the new login response with the refreshed access token and expiration time.
      * @throws NoRefreshTokenException If no refresh token is found.
@@ -134,13 +159,29 @@ public class AuthenticationController {
             throw new NoRefreshTokenException("No refresh token found"); // Throw an exception if no refresh token is found
         }
 
-        String jwtToken = jwtService.refreshAccessToken(refreshToken); // Refresh the access token
+        JwtService.TokenPair tokens = jwtService.rotateRefreshToken(refreshToken); // Refresh the access token and replace the refresh token
 
         LoginResponse loginResponse = new LoginResponse();
-        loginResponse.setToken(jwtToken); // Set the new token in the response
+        loginResponse.setToken(tokens.getAccessToken()); // Set the new token in the response
         loginResponse.setExpires(jwtService.getAccessExpirationTime()); // Set the new token expiration time
 
-        return ResponseEntity.ok(loginResponse);
+        ResponseCookie cookie = refreshTokenCookie(tokens.getRefreshToken(), jwtService.getRefreshExpirationTime() / 1000);
+
+        return ResponseEntity.ok().header(HttpHeaders.SET_COOKIE, cookie.toString()).body(loginResponse);
+    }
+
+    /**
+     * Private method to build the HttpOnly cookie holding the refresh token.
+     * @param refreshToken The refresh token, or an empty string to clear the cookie.
+     * @param maxAge The max age of the cookie in seconds.
+     * @return The cookie.
+     */
+    private ResponseCookie refreshTokenCookie(String refreshToken, long maxAge) {
+        return ResponseCookie.from("jwtRefreshToken", refreshToken)
+                .httpOnly(true)
+                .path("/")
+                .maxAge(maxAge)
+                .build();
     }
 
     /**
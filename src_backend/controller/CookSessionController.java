@@ -0,0 +1,107 @@
+package com.bee.cookwithfriends.controller;
+
+import com.bee.cookwithfriends.dto.session.CookSessionDTO;
+import com.bee.cookwithfriends.dto.session.CookSessionStateDTO;
+import com.bee.cookwithfriends.dto.session.StartCookSessionDTO;
+import com.bee.cookwithfriends.service.CookSessionService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Controller for handling live cook-together sessions.
+ */
+@RequestMapping("/sessions")
+@RestController
+public class CookSessionController {
+    private final CookSessionService cookSessionService;
+
+    /**
+     * Constructor for CookSessionController.
+     * @param cookSessionService The service for handling cook-together sessions.
+     */
+    public CookSessionController(CookSessionService cookSessionService) {
+        this.cookSessionService = cookSessionService;
+    }
+
+    /**
+     * Endpoint to start a session for a recipe and invite friends to it.
+     * @param input The recipe and the IDs of the invited friends.
+     * @return A ResponseEntity containing the new session.
+     */
+    @PostMapping("/start")
+    public ResponseEntity<CookSessionDTO> startSession(@RequestBody StartCookSessionDTO input) {
+        return ResponseEntity.ok(cookSessionService.startSession(input)); // Start the session and invite the friends
+    }
+
+    /**
+     * Endpoint to join a session the current user was invited to.
+     * @param id The ID of the session.
+     * @return A ResponseEntity containing the session.
+     */
+    @PostMapping("/{id}/join")
+    public ResponseEntity<CookSessionDTO> joinSession(@PathVariable String id) {
+        return ResponseEntity.ok(cookSessionService.joinSession(id));
+    }
+
+    /**
+     * Endpoint to subscribe to the state updates of a session as server-sent events.
+     * @param id The ID of the session.
+     * @return The emitter of the state stream.
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable String id) {
+        return cookSessionService.subscribe(id);
+    }
+
+    /**
+     * Endpoint to move the session to another step of the recipe.
+     * @param id The ID of the session.
+     * @param step The index of the instruction in stepNumber order.
+     * @return A ResponseEntity containing the new state.
+     */
+    @PostMapping("/{id}/step")
+    public ResponseEntity<CookSessionStateDTO> setStep(@PathVariable String id, @RequestParam int step) {
+        return ResponseEntity.ok(cookSessionService.setStep(id, step));
+    }
+
+    /**
+     * Endpoint to start or clear the shared timer of the session.
+     * @param id The ID of the session.
+     * @param seconds The duration of the timer in seconds, 0 to clear it.
+     * @return A ResponseEntity containing the new state.
+     */
+    @PostMapping("/{id}/timer")
+    public ResponseEntity<CookSessionStateDTO> setTimer(@PathVariable String id, @RequestParam long seconds) {
+        return ResponseEntity.ok(cookSessionService.setTimer(id, seconds));
+    }
+
+    /**
+     * Endpoint to check or uncheck an ingredient on the shared checklist.
+     * @param id The ID of the session.
+     * @param ingredient The index of the ingredient in the recipe.
+     * @param checked Whether the ingredient is checked.
+     * @return A ResponseEntity containing the new state.
+     */
+    @PostMapping("/{id}/checklist")
+    public ResponseEntity<CookSessionStateDTO> setIngredientChecked(
+            @PathVariable String id,
+            @RequestParam int ingredient,
+            @RequestParam boolean checked
+    ) {
+        return ResponseEntity.ok(cookSessionService.setIngredientChecked(id, ingredient, checked));
+    }
+
+    /**
+     * Endpoint to end a session. Only the host can end it.
+     * @param id The ID of the session.
+     * @return A ResponseEntity indicating the success of the operation.
+     */
+    @PostMapping("/{id}/end")
+    public ResponseEntity<Void> endSession(@PathVariable String id) {
+        cookSessionService.endSession(id);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT); // Return a 204 No Content status
+    }
+}
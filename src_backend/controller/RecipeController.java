@@ -1,15 +1,25 @@
 package com.bee.cookwithfriends.controller;
 
+import com.bee.cookwithfriends.dto.PageDTO;
 import com.bee.cookwithfriends.dto.recipe.AddRecipeDTO;
+import com.bee.cookwithfriends.dto.recipe.ImportResultDTO;
 import com.bee.cookwithfriends.dto.recipe.RateRecipeDTO;
+import com.bee.cookwithfriends.dto.recipe.RecipeMatchDTO;
 import com.bee.cookwithfriends.dto.recipe.RecipeSmallDTO;
 import com.bee.cookwithfriends.dto.recipe.RecipeDTO;
 import com.bee.cookwithfriends.service.ImageService;
+import com.bee.cookwithfriends.service.ImageVariantService;
+import com.bee.cookwithfriends.service.LeaderboardService;
+import com.bee.cookwithfriends.service.RecipeImportService;
 import com.bee.cookwithfriends.service.RecipeService;
+import com.bee.cookwithfriends.service.TrendingService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -23,18 +33,34 @@ import java.util.List;
 @RequestMapping("/recipe")
 @RestController
 public class RecipeController {
+    private static final int MAX_SEARCH_LIMIT = 50;
 
     private final RecipeService recipeService;
     private final ImageService imageService;
+    private final RecipeImportService importService;
+    private final LeaderboardService leaderboardService;
+    private final TrendingService trendingService;
 
     /**
      * Constructor for RecipeController.
      * @param recipeService The service for handling recipe operations.
      * @param imageService The service for handling image operations.
+     * @param importService The service for bulk importing recipes.
+     * @param leaderboardService The leaderboard of the best rated recipes.
+     * @param trendingService The service for the trending recipes.
      */
-    public RecipeController(RecipeService recipeService, ImageService imageService) {
+    public RecipeController(
+            RecipeService recipeService,
+            ImageService imageService,
+            RecipeImportService importService,
+            LeaderboardService leaderboardService,
+            TrendingService trendingService
+    ) {
         this.recipeService = recipeService;
         this.imageService = imageService;
+        this.importService = importService;
+        this.leaderboardService = leaderboardService;
+        this.trendingService = trendingService;
     }
 
     /**
@@ -49,11 +75,34 @@ public class RecipeController {
     /**
      * Endpoint to get a stack of random recipes.
      * @param count The number of random recipes to retrieve.
+     * @param seed An optional seed to get a reproducible stack.
      * @return A ResponseEntity containing a list of random recipes.
      */
     @GetMapping("/random/{count}")
-    public ResponseEntity<List<RecipeSmallDTO>> getRandomStackOfRecipes(@PathVariable int count) {
-        return ResponseEntity.ok(recipeService.getRandomStackOfRecipes(count));
+    public ResponseEntity<List<RecipeSmallDTO>> getRandomStackOfRecipes(@PathVariable int count, @RequestParam(required = false) Long seed) {
+        return ResponseEntity.ok(recipeService.getRandomStackOfRecipes(count, seed));
+    }
+
+    /**
+     * Endpoint to get the best rated recipes.
+     * @param page The number of the page, starting at 0.
+     * @param size The page size, capped at MAX_SEARCH_LIMIT.
+     * @return A ResponseEntity containing the recipes of the page, best first.
+     */
+    @GetMapping("/top")
+    public ResponseEntity<List<RecipeSmallDTO>> getTopRecipes(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "20") int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_SEARCH_LIMIT));
+        return ResponseEntity.ok(leaderboardService.getPage(page, pageSize));
+    }
+
+    /**
+     * Endpoint to get the recipes with the most recent views and ratings.
+     * @param limit The maximum number of recipes, capped at MAX_SEARCH_LIMIT.
+     * @return A ResponseEntity containing the trending recipes, most active first.
+     */
+    @GetMapping("/trending")
+    public ResponseEntity<List<RecipeSmallDTO>> getTrendingRecipes(@RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(trendingService.getTrending(Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT))));
     }
 
     /**
@@ -67,13 +116,37 @@ public class RecipeController {
     }
 
     /**
-     * Endpoint to search for recipes by title.
-     * @param title The title to search for.
-     * @return A ResponseEntity containing a list of matching recipes.
+     * Endpoint to search for recipes by title and description.
+     * @param title The search query.
+     * @param limit The page size, capped at MAX_SEARCH_LIMIT.
+     * @param cursor The continuation token from the previous page.
+     * @return A ResponseEntity containing a page of matching recipes, best match first.
      */
     @GetMapping("/search")
-    public ResponseEntity<List<RecipeSmallDTO>> searchRecipes(@RequestParam String title) {
-        return ResponseEntity.ok(recipeService.searchByTitle(title));
+    public ResponseEntity<PageDTO<RecipeSmallDTO>> searchRecipes(
+            @RequestParam String title,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String cursor
+    ) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+        return ResponseEntity.ok(recipeService.searchByTitle(title, pageSize, cursor));
+    }
+
+    /**
+     * Endpoint to find recipes that can be cooked with the given ingredients.
+     * @param ingredients The names of the available ingredients.
+     * @param minMatches The minimum number of the given ingredients a recipe has to use.
+     * @param limit The maximum number of results, capped at MAX_SEARCH_LIMIT.
+     * @return A ResponseEntity containing the matching recipes, best coverage first.
+     */
+    @GetMapping("/byIngredients")
+    public ResponseEntity<List<RecipeMatchDTO>> findByIngredients(
+            @RequestParam List<String> ingredients,
+            @RequestParam(defaultValue = "1") int minMatches,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+        return ResponseEntity.ok(recipeService.findByIngredients(ingredients, minMatches, pageSize));
     }
 
     /**
@@ -86,6 +159,18 @@ public class RecipeController {
         return ResponseEntity.ok(recipeService.addRecipe(recipeDTO));
     }
 
+    /**
+     * Endpoint to bulk import recipes.
+     * The body is newline-delimited JSON with one AddRecipeDTO per line and is processed as a stream.
+     * @param request The HttpServletRequest providing the body stream.
+     * @return A ResponseEntity containing the number of imported recipes and the errors of the failed records.
+     * @throws IOException If the body cannot be read.
+     */
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public ResponseEntity<ImportResultDTO> importRecipes(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(importService.importRecipes(request.getInputStream()));
+    }
+
     /**
      * Endpoint to rate a recipe.
      * @param ratingDTO The DTO containing the rating data.
@@ -116,13 +201,17 @@ public class RecipeController {
     /**
      * Endpoint to get an image for a recipe.
      * @param id The ID of the recipe.
-     * @return A ResponseEntity containing the image file.
+     * @param size The size of the image, one of thumbnail, card or full.
+     * @return A ResponseEntity containing the image file. Spring answers with 304 if the client's copy is still current.
+     * @throws IOException If the image file cannot be read.
      */
     @GetMapping("/image/{id}")
-    public ResponseEntity<Resource> getImage(@PathVariable int id) {
-        Resource file = imageService.loadFile(id); // Load the image file from the service
+    public ResponseEntity<Resource> getImage(@PathVariable int id, @RequestParam(defaultValue = "full") String size) throws IOException {
+        Resource file = imageService.loadFile(id, ImageVariantService.Size.fromParameter(size)); // Load the image file from the service
         return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType("application/octet-stream")) // Set the content type to octet-stream (binary data)
+                .contentType(MediaTypeFactory.getMediaType(file).orElse(MediaType.APPLICATION_OCTET_STREAM)) // Set the content type from the file extension
+                .cacheControl(CacheControl.noCache()) // Clients revalidate, so a replaced image or a finished variant is picked up right away
+                .lastModified(file.lastModified()) // Answers If-Modified-Since without sending the file again
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFilename() + "\"") // Set the content disposition header for file download
                 .body(file); // Return the file as the response body
     }
@@ -1,12 +1,18 @@
 package com.bee.cookwithfriends.controller;
 
+import com.bee.cookwithfriends.dto.PageDTO;
 import com.bee.cookwithfriends.dto.user.CurrentUserDTO;
+import com.bee.cookwithfriends.dto.user.FriendRequestBatchDTO;
+import com.bee.cookwithfriends.dto.user.FriendRequestBatchResultDTO;
 import com.bee.cookwithfriends.dto.user.FriendRequestDTO;
+import com.bee.cookwithfriends.dto.user.FriendSuggestionDTO;
 import com.bee.cookwithfriends.dto.user.UserDTO;
 import com.bee.cookwithfriends.service.UserService;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -16,6 +22,8 @@ import java.util.List;
 @RequestMapping("/users")
 @RestController
 public class UserController {
+    private static final int MAX_SEARCH_LIMIT = 50;
+
     private final UserService userService;
 
     /**
@@ -35,6 +43,15 @@ public class UserController {
         return ResponseEntity.ok(userService.me()); // Fetch the current user's data from the service
     }
 
+    /**
+     * Endpoint to subscribe to server-sent events about new friend requests and friendships of the current user.
+     * @return The emitter of the event stream.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events() {
+        return userService.subscribeToEvents(); // Open the event stream
+    }
+
     /**
      * Endpoint to send a friend request to another user.
      * @param receiverId The ID of the user to whom the friend request is sent.
@@ -58,13 +75,30 @@ public class UserController {
     }
 
     /**
-     * Endpoint to search for users by username.
-     * @param username The username to search for.
-     * @return A ResponseEntity containing a list of matching users.
+     * Endpoint to accept and decline many pending friend requests at once.
+     * @param batch The IDs of the senders whose requests are accepted or declined.
+     * @return A ResponseEntity containing the IDs of the senders whose requests were answered.
+     */
+    @PostMapping("/answerFriendRequests")
+    public ResponseEntity<FriendRequestBatchResultDTO> answerFriendRequests(@RequestBody FriendRequestBatchDTO batch) {
+        return ResponseEntity.ok(userService.answerFriendRequests(batch)); // Answer all requests in one transaction
+    }
+
+    /**
+     * Endpoint to search for users by username prefix, friends and pending requesters first.
+     * @param username The prefix of the username to search for.
+     * @param limit The page size, capped at MAX_SEARCH_LIMIT.
+     * @param cursor The continuation token from the previous page.
+     * @return A ResponseEntity containing a page of matching users.
      */
     @GetMapping("/search")
-    public ResponseEntity<List<UserDTO>> searchUsers(@RequestParam String username) {
-        List<UserDTO> users = userService.searchUsers(username); // Search for users by username
+    public ResponseEntity<PageDTO<UserDTO>> searchUsers(
+            @RequestParam String username,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String cursor
+    ) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+        PageDTO<UserDTO> users = userService.searchUsers(username, pageSize, cursor); // Search for users by username
         return ResponseEntity.ok(users);
     }
 
@@ -78,6 +112,17 @@ public class UserController {
         return ResponseEntity.ok(friends);
     }
 
+    /**
+     * Endpoint to get friend suggestions for the current user, ranked by the number of mutual friends.
+     * @param limit The maximum number of suggestions, capped at MAX_SEARCH_LIMIT.
+     * @return A ResponseEntity containing a list of suggested users.
+     */
+    @GetMapping("/suggestions")
+    public ResponseEntity<List<FriendSuggestionDTO>> friendSuggestions(@RequestParam(defaultValue = "10") int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+        return ResponseEntity.ok(userService.friendSuggestions(size)); // Get the ranked suggestions
+    }
+
     /**
      * Endpoint to get the list of pending friend requests for the current user.
      * @return A ResponseEntity containing a list of friend requests.
@@ -0,0 +1,20 @@
+package com.bee.cookwithfriends.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageDTO<T> {
+
+    private List<T> items;
+    //Opaque token for the next page, null if this is the last page
+    private String nextCursor;
+
+}
@@ -0,0 +1,21 @@
+package com.bee.cookwithfriends.dto;
+
+import com.bee.cookwithfriends.service.PasswordHashingService;
+import com.bee.cookwithfriends.service.RecipeDetailCache;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatsDTO {
+
+    //Hit rate, evictions and memory of the recipe detail cache
+    private RecipeDetailCache.CacheStats recipeDetailCache;
+    //Load, rejections and latency of the password hashing executor
+    private PasswordHashingService.HashingStats passwordHashing;
+
+}
@@ -0,0 +1,17 @@
+package com.bee.cookwithfriends.dto.recipe;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportErrorDTO {
+
+    private int line;
+    private String message;
+
+}
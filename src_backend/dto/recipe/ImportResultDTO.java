@@ -0,0 +1,22 @@
+package com.bee.cookwithfriends.dto.recipe;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportResultDTO {
+
+    private int processed;
+    private int imported;
+    private int failed;
+    //Errors of the first failed records, limited in size
+    private List<ImportErrorDTO> errors;
+
+}
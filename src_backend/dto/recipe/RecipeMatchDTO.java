@@ -0,0 +1,22 @@
+package com.bee.cookwithfriends.dto.recipe;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecipeMatchDTO {
+
+    private int id;
+    private String title;
+    private String description;
+    private int cookingTime;
+    private int rating;
+    private int matchedIngredients;
+    private int totalIngredients;
+
+}
@@ -0,0 +1,21 @@
+package com.bee.cookwithfriends.dto.session;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CookSessionDTO {
+    private String id;
+    private int recipeId;
+    private int hostId;
+    private List<Integer> invited;
+    private List<Integer> participants;
+    private CookSessionStateDTO state;
+}
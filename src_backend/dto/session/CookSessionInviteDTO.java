@@ -0,0 +1,18 @@
+package com.bee.cookwithfriends.dto.session;
+
+import com.bee.cookwithfriends.dto.user.UserDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CookSessionInviteDTO {
+    private String sessionId;
+    private int recipeId;
+    private String recipeTitle;
+    private UserDTO host;
+}
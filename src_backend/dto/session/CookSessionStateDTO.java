@@ -0,0 +1,30 @@
+package com.bee.cookwithfriends.dto.session;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CookSessionStateDTO {
+    private String sessionId;
+
+    //Increases with every update, clients ignore states older than the one they show
+    private long version;
+
+    //Index of the current instruction in stepNumber order
+    private int step;
+
+    //Epoch milliseconds at which the shared timer ends, 0 if no timer runs
+    private long timerEndsAt;
+
+    //Indexes of the ingredients checked off the shared checklist
+    private List<Integer> checkedIngredients;
+
+    private boolean ended;
+}
@@ -0,0 +1,19 @@
+package com.bee.cookwithfriends.dto.session;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StartCookSessionDTO {
+    private int recipeId;
+
+    //IDs of the friends invited to cook along
+    private List<Integer> invite;
+}
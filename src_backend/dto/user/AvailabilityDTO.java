@@ -0,0 +1,18 @@
+package com.bee.cookwithfriends.dto.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityDTO {
+    //Null if the username was not checked
+    private Boolean usernameAvailable;
+
+    //Null if the email was not checked
+    private Boolean emailAvailable;
+}
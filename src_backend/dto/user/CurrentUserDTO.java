@@ -13,4 +13,5 @@ public class CurrentUserDTO {
     private int id;
     private String username;
     private String email;
+    private int friendCount;
 }
@@ -0,0 +1,20 @@
+package com.bee.cookwithfriends.dto.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendRequestBatchDTO {
+    //IDs of the senders whose friend requests are accepted
+    private List<Integer> accept;
+
+    //IDs of the senders whose friend requests are declined
+    private List<Integer> decline;
+}
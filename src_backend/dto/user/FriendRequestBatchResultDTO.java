@@ -0,0 +1,20 @@
+package com.bee.cookwithfriends.dto.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendRequestBatchResultDTO {
+    //IDs of the senders whose pending friend requests were accepted
+    private List<Integer> accepted;
+
+    //IDs of the senders whose pending friend requests were declined
+    private List<Integer> declined;
+}
@@ -0,0 +1,18 @@
+package com.bee.cookwithfriends.dto.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendSuggestionDTO {
+    private int id;
+    private String username;
+
+    //Number of friends the suggested user shares with the current user
+    private int mutualFriends;
+}
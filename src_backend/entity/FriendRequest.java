@@ -9,7 +9,7 @@ import lombok.Setter;
 @Getter
 @Setter
 @NoArgsConstructor
-@Table(name="friend_request")
+@Table(name="friend_request", indexes = @Index(name = "idx_friend_request_sender_receiver", columnList = "sender_id, receiver_id"))
 public class FriendRequest {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,24 @@
+package com.bee.cookwithfriends.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name="rating_flush")
+public class RatingFlush {
+    //One row per node, as every node replays its own local rating logs
+    @Id
+    @Column(name = "node_id")
+    private String nodeId;
+
+    //Sequence number of the last committed rating flush, written in the same transaction as the rating increments
+    @Column(nullable = false)
+    private long sequence;
+}
@@ -0,0 +1,26 @@
+package com.bee.cookwithfriends.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name="revoked_token", indexes = @Index(name = "idx_revoked_token_expires_at", columnList = "expires_at"))
+public class RevokedToken {
+    //Token ID (jti) of the revoked refresh token
+    @Id
+    @Column(length = 36, nullable = false)
+    private String jti;
+
+    //Expiration of the token, after which the revocation is no longer needed
+    @Column(name = "expires_at", nullable = false)
+    private Date expiresAt;
+}
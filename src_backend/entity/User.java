@@ -9,7 +9,6 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collection;
 import java.util.Date;
@@ -44,7 +43,8 @@ public class User implements UserDetails {
     @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     @JoinTable(name="friends",
             joinColumns = @JoinColumn(name="person_id"),
-            inverseJoinColumns = @JoinColumn(name="friend_id")
+            inverseJoinColumns = @JoinColumn(name="friend_id"),
+            uniqueConstraints = @UniqueConstraint(name = "uk_friends_person_friend", columnNames = {"person_id", "friend_id"})
     )
     private List<User> friends;
 
@@ -67,24 +67,7 @@ public class User implements UserDetails {
     private Date updatedAt;
 
 
-    @Transactional
-    public boolean isFriend(User user){
-        return friends.contains(user) || friendOf.contains(user);
-    }
-
-    public void addFriend(User user){
-        if(!(friends.contains(user) || friendOf.contains(user))){
-            friends.add(user);
-        }
-    }
-
-
-
-
-
-
-
-
+    //Friendship checks and friend lists are answered by the FriendGraphService
 
     //Functions not used
 
@@ -1,6 +1,7 @@
 package com.bee.cookwithfriends.exceptions;
 
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.security.SignatureException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +60,20 @@ public class GlobalExceptionHandler {
         return errorDetail;
     }
 
+    @ExceptionHandler(LoginThrottledException.class)
+    public ProblemDetail handleLoginThrottledException(LoginThrottledException exception){
+        logger.warn("Login rejected by admission control", exception);
+
+        ProblemDetail errorDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatusCode.valueOf(429),
+                exception.getMessage()
+        );
+
+        errorDetail.setProperty("description", "Too many logins at the moment");
+
+        return errorDetail;
+    }
+
     @ExceptionHandler(AccountStatusException.class)
     public ProblemDetail handleAccountStatusException(AccountStatusException exception){
         logger.warn("Account status exception occurred", exception);
@@ -91,6 +106,11 @@ public class GlobalExceptionHandler {
             errorDetail.setProperty("description", "You are not authorized to access this resource");
         }
 
+        if (exception instanceof JwtException) {
+            errorDetail = ProblemDetail.forStatusAndDetail(HttpStatusCode.valueOf(403), exception.getMessage());
+            errorDetail.setProperty("description", "The JWT token is invalid");
+        }
+
         if (exception instanceof SignatureException) {
             errorDetail = ProblemDetail.forStatusAndDetail(HttpStatusCode.valueOf(403), exception.getMessage());
             errorDetail.setProperty("description", "The JWT signature is invalid");
@@ -111,6 +131,11 @@ public class GlobalExceptionHandler {
             errorDetail.setProperty("description", "No Refresh Token has been found");
         }
 
+        if (exception instanceof RevokedRefreshTokenException){
+            errorDetail = ProblemDetail.forStatusAndDetail(HttpStatusCode.valueOf(403), exception.getMessage());
+            errorDetail.setProperty("description", "The Refresh Token has already been used or revoked");
+        }
+
         if (errorDetail == null) {
             errorDetail = ProblemDetail.forStatusAndDetail(HttpStatusCode.valueOf(500), exception.getMessage());
             errorDetail.setProperty("description", "Unknown internal server error.");
@@ -0,0 +1,7 @@
+package com.bee.cookwithfriends.exceptions;
+
+public class RevokedRefreshTokenException extends RuntimeException {
+    public RevokedRefreshTokenException(String message){
+        super(message);
+    }
+}
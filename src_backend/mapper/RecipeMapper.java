@@ -0,0 +1,97 @@
+package com.bee.cookwithfriends.mapper;
+
+import com.bee.cookwithfriends.dto.recipe.*;
+import com.bee.cookwithfriends.entity.Instruction;
+import com.bee.cookwithfriends.entity.Recipe;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written mappings between recipe entities and DTOs.
+ * Only the listed properties are read, so lazy associations of the entities are never touched by accident.
+ */
+@Component
+public class RecipeMapper {
+
+    /**
+     * Method to map a recipe to a RecipeSmallDTO.
+     * @param recipe The recipe entity.
+     * @return A RecipeSmallDTO.
+     */
+    public RecipeSmallDTO toRecipeSmallDTO(Recipe recipe) {
+        return new RecipeSmallDTO(recipe.getId(), recipe.getTitle(), recipe.getDescription(), recipe.getCookingTime(), recipe.getRating());
+    }
+
+    /**
+     * Method to map a list of recipes to a list of RecipeSmallDTO.
+     * @param recipes The list of recipes.
+     * @return A list of RecipeSmallDTO.
+     */
+    public List<RecipeSmallDTO> toRecipeSmallDTOList(List<Recipe> recipes) {
+        List<RecipeSmallDTO> recipeDTOs = new ArrayList<>(recipes.size());
+
+        for (Recipe recipe : recipes) {
+            recipeDTOs.add(toRecipeSmallDTO(recipe));
+        }
+
+        return recipeDTOs;
+    }
+
+    /**
+     * Method to map a recipe with already loaded instructions to a RecipeDTO.
+     * The lazy ingredient list of the entity is not touched, the ingredients are passed in.
+     * @param recipe The recipe entity.
+     * @param ingredients The ingredients of the recipe.
+     * @return A RecipeDTO.
+     */
+    public RecipeDTO toRecipeDTO(Recipe recipe, List<RecipeIngredientDTO> ingredients) {
+        List<InstructionDTO> instructions = new ArrayList<>(recipe.getInstructions().size());
+
+        for (Instruction instruction : recipe.getInstructions()) {
+            instructions.add(new InstructionDTO(instruction.getStepNumber(), instruction.getInstruction()));
+        }
+
+        return new RecipeDTO(
+                recipe.getId(),
+                recipe.getTitle(),
+                recipe.getDescription(),
+                instructions,
+                ingredients,
+                recipe.getCookingTime(),
+                recipe.getPreparationTime(),
+                recipe.getServings(),
+                recipe.getRating()
+        );
+    }
+
+    /**
+     * Method to map an AddRecipeDTO to a new recipe with its instructions.
+     * Ingredients are not mapped, they have to be resolved by the caller.
+     * @param recipeDTO The DTO containing the new recipe data.
+     * @return A new, unsaved Recipe entity.
+     */
+    public Recipe toRecipe(AddRecipeDTO recipeDTO) {
+        Recipe recipe = new Recipe();
+        recipe.setTitle(recipeDTO.getTitle());
+        recipe.setDescription(recipeDTO.getDescription());
+        recipe.setCookingTime(recipeDTO.getCookingTime());
+        recipe.setPreparationTime(recipeDTO.getPreparationTime());
+        recipe.setServings(recipeDTO.getServings());
+
+        List<Instruction> instructions = new ArrayList<>();
+        if (recipeDTO.getInstructions() != null) {
+            for (InstructionDTO instructionDTO : recipeDTO.getInstructions()) {
+                Instruction instruction = new Instruction();
+                instruction.setStepNumber(instructionDTO.getStepNumber());
+                instruction.setInstruction(instructionDTO.getInstruction());
+                instruction.setRecipe(recipe);
+                instructions.add(instruction);
+            }
+        }
+        recipe.setInstructions(instructions);
+
+        return recipe;
+    }
+}
@@ -0,0 +1,52 @@
+package com.bee.cookwithfriends.mapper;
+
+import com.bee.cookwithfriends.config.AuthenticatedUser;
+import com.bee.cookwithfriends.dto.user.CurrentUserDTO;
+import com.bee.cookwithfriends.dto.user.UserDTO;
+import com.bee.cookwithfriends.entity.User;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written mappings from user entities to DTOs.
+ * Only the listed properties are read, so the lazy friend collections are never touched.
+ */
+@Component
+public class UserMapper {
+
+    /**
+     * Method to map a user to a UserDTO.
+     * @param user The user entity.
+     * @return A UserDTO.
+     */
+    public UserDTO toUserDTO(User user) {
+        return new UserDTO(user.getId(), user.getUsername());
+    }
+
+    /**
+     * Method to map a list of users to a list of UserDTO.
+     * @param users The list of users.
+     * @return A list of UserDTO.
+     */
+    public List<UserDTO> toUserDTOList(List<User> users) {
+        List<UserDTO> usersDTO = new ArrayList<>(users.size());
+
+        for (User user : users) {
+            usersDTO.add(toUserDTO(user));
+        }
+
+        return usersDTO;
+    }
+
+    /**
+     * Method to map the authenticated user to a CurrentUserDTO.
+     * @param user The principal of the authenticated user.
+     * @param friendCount The number of friends of the user.
+     * @return A CurrentUserDTO.
+     */
+    public CurrentUserDTO toCurrentUserDTO(AuthenticatedUser user, int friendCount) {
+        return new CurrentUserDTO(user.getId(), user.getUsername(), user.getEmail(), friendCount);
+    }
+}
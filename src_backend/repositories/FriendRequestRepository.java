@@ -2,18 +2,33 @@ package com.bee.cookwithfriends.repositories;
 
 import com.bee.cookwithfriends.entity.FriendRequest;
 import com.bee.cookwithfriends.entity.User;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface FriendRequestRepository extends CrudRepository<FriendRequest, Integer> {
-    Optional<FriendRequest> findBySenderAndReceiver(User sender, User receiver);
+    //Checks both directions in one query on the (sender_id, receiver_id) index
+    @Query("SELECT CASE WHEN COUNT(fr) > 0 THEN true ELSE false END FROM FriendRequest fr " +
+            "WHERE (fr.sender.id = :userId AND fr.receiver.id = :otherId) OR (fr.sender.id = :otherId AND fr.receiver.id = :userId)")
+    boolean existsBetween(@Param("userId") int userId, @Param("otherId") int otherId);
+
+    //Returns the number of deleted requests, so that a missing request needs no separate lookup
+    @Modifying
+    @Query("DELETE FROM FriendRequest fr WHERE fr.sender.id IN :senderIds AND fr.receiver.id = :receiverId")
+    int deleteBySenderIdsAndReceiverId(@Param("senderIds") Collection<Integer> senderIds, @Param("receiverId") int receiverId);
 
     @Query("SELECT DISTINCT fr.sender FROM FriendRequest fr WHERE fr.receiver.id = :receiverId")
     List<User> findSendersByReceiverId(@Param("receiverId") int receiverId);
+
+    @Query("SELECT DISTINCT fr.sender.id FROM FriendRequest fr WHERE fr.receiver.id = :receiverId")
+    List<Integer> findSenderIdsByReceiverId(@Param("receiverId") int receiverId);
+
+    @Query("SELECT DISTINCT fr.receiver.id FROM FriendRequest fr WHERE fr.sender.id = :senderId")
+    List<Integer> findReceiverIdsBySenderId(@Param("senderId") int senderId);
 }
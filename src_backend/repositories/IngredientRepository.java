@@ -1,13 +1,26 @@
 package com.bee.cookwithfriends.repositories;
 
 import com.bee.cookwithfriends.entity.Ingredient;
-import org.springframework.data.repository.CrudRepository;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.List;
 
-public interface IngredientRepository extends CrudRepository<Ingredient, Integer> {
+public interface IngredientRepository extends JpaRepository<Ingredient, Integer> {
 
-    Optional<Ingredient> findByName(String name);
+    List<Ingredient> findByNameIn(Collection<String> names);
+
+    //Locking read, sees rows committed by concurrent transactions after our snapshot was taken
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT i FROM Ingredient i WHERE i.name IN :names")
+    List<Ingredient> lockByNameIn(@Param("names") Collection<String> names);
+
+    @Query("SELECT i.name, i.id FROM Ingredient i")
+    List<Object[]> findAllNamesAndIds();
 
     //Optional<Ingredient> findById(int id);
 
@@ -1,5 +1,6 @@
 package com.bee.cookwithfriends.repositories;
 
+import com.bee.cookwithfriends.dto.recipe.RecipeIngredientDTO;
 import com.bee.cookwithfriends.entity.Recipe;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
@@ -11,12 +12,24 @@ import java.util.Optional;
 public interface RecipeRepository extends CrudRepository<Recipe, Integer> {
 
     Optional<Recipe> findById(int id);
-    List<Recipe> findByTitleContainingIgnoreCase(String username);
 
-    @Query(value = "SELECT * FROM recipe ORDER BY RAND() LIMIT 1", nativeQuery = true)
-    Optional<Recipe> getRandomRecipe();
+    //Recipe together with its instructions in a single statement (ingredients are loaded by findIngredientDTOsByRecipeId)
+    @Query("SELECT DISTINCT r FROM Recipe r LEFT JOIN FETCH r.instructions WHERE r.id = :id")
+    Optional<Recipe> findWithInstructionsById(@Param("id") int id);
 
+    @Query("SELECT new com.bee.cookwithfriends.dto.recipe.RecipeIngredientDTO(i.name, ri.unit, ri.amount) " +
+            "FROM RecipeIngredient ri JOIN ri.ingredient i WHERE ri.recipe.id = :recipeId ORDER BY ri.id")
+    List<RecipeIngredientDTO> findIngredientDTOsByRecipeId(@Param("recipeId") int recipeId);
 
-    @Query(value = "SELECT * FROM recipe ORDER BY RAND() LIMIT :count", nativeQuery = true)
-    Optional<List<Recipe>> getRandomStackOfRecipes(@Param("count") int count);
+    @Query("SELECT r.id FROM Recipe r")
+    List<Integer> findAllIds();
+
+    @Query("SELECT r.id, r.title, r.description FROM Recipe r")
+    List<Object[]> findAllSearchFields();
+
+    @Query("SELECT r.id, r.sumRating, r.countRating FROM Recipe r WHERE r.countRating > 0")
+    List<Object[]> findAllRatingSumsAndCounts();
+
+    @Query("SELECT ri.recipe.id, ri.ingredient.id FROM RecipeIngredient ri")
+    List<Object[]> findAllRecipeIngredientIds();
 }
@@ -1,20 +1,32 @@
 package com.bee.cookwithfriends.repositories;
 
 import com.bee.cookwithfriends.entity.User;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends CrudRepository<User, Integer> {
+public interface UserRepository extends JpaRepository<User, Integer> {
     Optional<User> findByEmail(String email);
-    List<User> findByUsernameContainingIgnoreCase(String username);
     User findByUsername(String username);
 
     boolean existsByUsername(String username);
 
     boolean existsByEmail(String email);
 
+    //Username and email of every user, for the availability filters
+    @Query("SELECT u.username, u.email FROM User u")
+    List<Object[]> findAllUsernamesAndEmails();
+
+    //ID and username of every user, for the username prefix index
+    @Query("SELECT u.id, u.username FROM User u")
+    List<Object[]> findAllIdsAndUsernames();
+
+    //Every row of the friends table, for the friend graph
+    @Query(value = "SELECT person_id, friend_id FROM friends", nativeQuery = true)
+    List<Object[]> findAllFriendships();
+
 }
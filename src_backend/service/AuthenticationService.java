@@ -1,13 +1,17 @@
 package com.bee.cookwithfriends.service;
 
+import com.bee.cookwithfriends.dto.user.AvailabilityDTO;
 import com.bee.cookwithfriends.dto.user.LoginUserDTO;
 import com.bee.cookwithfriends.dto.user.RegisterUserDTO;
 import com.bee.cookwithfriends.entity.User;
 import com.bee.cookwithfriends.exceptions.EmailTakenException;
+import com.bee.cookwithfriends.exceptions.LoginThrottledException;
 import com.bee.cookwithfriends.exceptions.UsernameTakenException;
 import com.bee.cookwithfriends.repositories.UserRepository;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -16,21 +20,33 @@ public class AuthenticationService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
+    private final PasswordHashingService passwordHashingService;
+    private final AvailabilityService availabilityService;
+    private final UserSearchService userSearchService;
 
     /**
      * Constructor for AuthenticationService.
      * @param userRepository The repository for handling user data.
      * @param authenticationManager The manager for handling authentication.
      * @param passwordEncoder The encoder for handling password encryption.
+     * @param passwordHashingService The bounded executor for password hashing and verification.
+     * @param availabilityService The service for checking the availability of usernames and emails.
+     * @param userSearchService The service for searching users by username prefix.
      */
     public AuthenticationService(
             UserRepository userRepository,
             AuthenticationManager authenticationManager,
-            PasswordEncoder passwordEncoder
+            PasswordEncoder passwordEncoder,
+            PasswordHashingService passwordHashingService,
+            AvailabilityService availabilityService,
+            UserSearchService userSearchService
     ) {
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.availabilityService = availabilityService;
+        this.userSearchService = userSearchService;
     }
 
     /**
@@ -39,53 +55,72 @@ public class AuthenticationService {
      * @return The registered user.
      * @throws UsernameTakenException If the username is already taken.
      * @throws EmailTakenException If the email is already in use.
+     * @throws LoginThrottledException If too many passwords are being hashed.
      */
     public User signup(RegisterUserDTO input) throws UsernameTakenException, EmailTakenException {
-        checkUsernameAvailability(input.getUsername()); // Check if the username is available
-        checkEmailAvailability(input.getEmail()); // Check if the email is available
-
         User user = new User();
         user.setUsername(input.getUsername());
         user.setEmail(input.getEmail());
-        user.setPassword(passwordEncoder.encode(input.getPassword())); // Encode the password before saving
+        user.setPassword(passwordHashingService.execute(() -> passwordEncoder.encode(input.getPassword()))); // Encode the password on the hashing executor before saving
+
+        try {
+            user = userRepository.saveAndFlush(user); // Single insert, the unique constraints reject taken usernames and emails
+        } catch (DataIntegrityViolationException exception) {
+            throw takenException(input, exception); // Find out which constraint was violated
+        }
+
+        availabilityService.addUser(user); // Mark the username and email as taken for the typeahead
+        userSearchService.addUser(user.getId(), user.getUsername()); // Make the user searchable
+
+        return user;
+    }
 
-        return userRepository.save(user); // Save the user to the repository
+    /**
+     * Method to check the availability of a username and an email for the signup typeahead.
+     * @param username The username to check, or null.
+     * @param email The email to check, or null.
+     * @return An AvailabilityDTO with the result for every given value.
+     */
+    public AvailabilityDTO checkAvailability(String username, String email) {
+        return new AvailabilityDTO(
+                username != null ? availabilityService.isUsernameAvailable(username) : null,
+                email != null ? availabilityService.isEmailAvailable(email) : null
+        );
     }
 
     /**
      * Method to authenticate a user.
      * @param input The DTO containing the user login credentials.
      * @return The authenticated user.
+     * @throws LoginThrottledException If too many logins are being verified.
      */
     public User authenticate(LoginUserDTO input) {
-        authenticationManager.authenticate(
+        Authentication authentication = passwordHashingService.execute(() -> authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         input.getEmail(), // Use email as the username for authentication
                         input.getPassword()
                 )
-        );
+        )); // Verify the password on the hashing executor
 
-        return userRepository.findByEmail(input.getEmail()) // Find the user by email
-                .orElseThrow(); // Throw an exception if the user is not found
+        return (User) authentication.getPrincipal(); // The user loaded by the authentication provider
     }
 
     /**
-     * Method to check if a username is available.
-     * @param username The username to check.
-     * @throws UsernameTakenException If the username is already taken.
+     * Method to map a failed signup insert to the matching exception.
+     * Only runs after a constraint violation, so successful signups do not pay for the existence checks.
+     * @param input The DTO containing the user registration data.
+     * @param exception The constraint violation of the insert.
+     * @return The exception to throw.
      */
-    private void checkUsernameAvailability(String username) throws UsernameTakenException {
-        boolean exists = userRepository.existsByUsername(username); // Check if the username exists
-        if (exists) throw new UsernameTakenException("Username " + username + " is already taken"); // Throw an exception if it does
-    }
+    private RuntimeException takenException(RegisterUserDTO input, DataIntegrityViolationException exception) {
+        if (userRepository.existsByUsername(input.getUsername())) {
+            return new UsernameTakenException("Username " + input.getUsername() + " is already taken");
+        }
 
-    /**
-     * Method to check if an email is available.
-     * @param email The email to check.
-     * @throws EmailTakenException If the email is already in use.
-     */
-    private void checkEmailAvailability(String email) throws EmailTakenException {
-        boolean exists = userRepository.existsByEmail(email); // Check if the email exists
-        if (exists) throw new EmailTakenException("Email is already in use"); // Throw an exception if it does
+        if (userRepository.existsByEmail(input.getEmail())) {
+            return new EmailTakenException("Email is already in use");
+        }
+
+        return exception; // Violation of another constraint
     }
 }
\ No newline at end of file
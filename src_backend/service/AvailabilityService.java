@@ -0,0 +1,88 @@
+package com.bee.cookwithfriends.service;
+
+import com.bee.cookwithfriends.entity.User;
+import com.bee.cookwithfriends.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+
+/**
+ * Answers whether usernames and emails are still available, for live typeahead during signup.
+ * Bloom filters over all lower-cased usernames and emails rule out most candidates in memory,
+ * only possible matches are confirmed with the database.
+ */
+@Service
+public class AvailabilityService {
+    private final UserRepository userRepository;
+
+    private final BloomFilter usernames;
+    private final BloomFilter emails;
+
+    /**
+     * Constructor for AvailabilityService.
+     * @param userRepository The repository for handling user data.
+     * @param expectedUsers The expected number of users the filters are sized for.
+     * @param falsePositiveRate The accepted rate of lookups that have to be confirmed with the database.
+     */
+    public AvailabilityService(
+            UserRepository userRepository,
+            @Value("${user.availability.expected-users:1000000}") long expectedUsers,
+            @Value("${user.availability.false-positive-rate:0.01}") double falsePositiveRate
+    ) {
+        this.userRepository = userRepository;
+        this.usernames = new BloomFilter(expectedUsers, falsePositiveRate);
+        this.emails = new BloomFilter(expectedUsers, falsePositiveRate);
+    }
+
+    /**
+     * Method to load the usernames and emails of all users into the filters.
+     */
+    @PostConstruct
+    void load() {
+        for (Object[] row : userRepository.findAllUsernamesAndEmails()) {
+            usernames.add(key((String) row[0]));
+            emails.add(key((String) row[1]));
+        }
+    }
+
+    /**
+     * Method to check if a username is available.
+     * @param username The username to check.
+     * @return True if no user has the username, false otherwise.
+     */
+    public boolean isUsernameAvailable(String username) {
+        if (!usernames.mightContain(key(username))) {
+            return true; // Definitely not taken, no database lookup
+        }
+
+        return !userRepository.existsByUsername(username); // Possible match, confirm with the database
+    }
+
+    /**
+     * Method to check if an email is available.
+     * @param email The email to check.
+     * @return True if no user has the email, false otherwise.
+     */
+    public boolean isEmailAvailable(String email) {
+        if (!emails.mightContain(key(email))) {
+            return true; // Definitely not taken, no database lookup
+        }
+
+        return !userRepository.existsByEmail(email); // Possible match, confirm with the database
+    }
+
+    /**
+     * Method to add a registered user to the filters.
+     * @param user The registered user.
+     */
+    public void addUser(User user) {
+        usernames.add(key(user.getUsername()));
+        emails.add(key(user.getEmail()));
+    }
+
+    private static String key(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,507 @@
+package com.bee.cookwithfriends.service;
+
+import com.bee.cookwithfriends.config.AuthenticatedUser;
+import com.bee.cookwithfriends.dto.recipe.RecipeDTO;
+import com.bee.cookwithfriends.dto.session.CookSessionDTO;
+import com.bee.cookwithfriends.dto.session.CookSessionInviteDTO;
+import com.bee.cookwithfriends.dto.session.CookSessionStateDTO;
+import com.bee.cookwithfriends.dto.session.StartCookSessionDTO;
+import com.bee.cookwithfriends.dto.user.UserDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Live "cook together" sessions, in which a host and invited friends walk through a recipe in sync.
+ * Sessions live in memory, their state is an immutable snapshot swapped by compare-and-set,
+ * and every participant connection only keeps the newest unsent state, so slow clients skip superseded updates.
+ */
+@Service
+public class CookSessionService {
+    public static final String STATE_EVENT = "state";
+    public static final String INVITE_EVENT = "cookSessionInvite";
+
+    private static final long MAX_TIMER_SECONDS = 24 * 60 * 60; // Longer than any cooking step, and far from overflowing in milliseconds
+
+    private final RecipeService recipeService;
+    private final FriendGraphService friendGraphService;
+    private final NotificationService notificationService;
+    private final int maxSessions;
+    private final int maxSessionsPerHost;
+    private final int maxParticipants;
+    private final long idleTimeoutMillis;
+    private final long streamTimeoutMillis;
+    private final ExecutorService senders;
+
+    private final Map<String, CookSession> sessions = new ConcurrentHashMap<>();
+
+    //Host user ID -> number of running sessions of the host, so one user cannot take all session slots
+    private final Map<Integer, Integer> sessionsByHost = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for CookSessionService.
+     * @param recipeService The service for handling recipe operations.
+     * @param friendGraphService The in-memory graph of friendships.
+     * @param notificationService The service for pushing events to connected clients.
+     * @param maxSessions The maximum number of concurrent sessions on this node.
+     * @param maxSessionsPerHost The maximum number of concurrent sessions one user hosts.
+     * @param maxParticipants The maximum number of participants of one session, the host included.
+     * @param idleTimeoutMillis The time in milliseconds without updates after which a session ends.
+     * @param streamTimeoutMillis The time in milliseconds after which a state stream has to be reopened by the client.
+     * @param senderThreads The number of threads writing states to the connections.
+     */
+    public CookSessionService(
+            RecipeService recipeService,
+            FriendGraphService friendGraphService,
+            NotificationService notificationService,
+            @Value("${cook.session.max-sessions:10000}") int maxSessions,
+            @Value("${cook.session.max-sessions-per-host:3}") int maxSessionsPerHost,
+            @Value("${cook.session.max-participants:16}") int maxParticipants,
+            @Value("${cook.session.idle-timeout:10800000}") long idleTimeoutMillis,
+            @Value("${cook.session.stream-timeout:1800000}") long streamTimeoutMillis,
+            @Value("${cook.session.sender-threads:4}") int senderThreads
+    ) {
+        this.recipeService = recipeService;
+        this.friendGraphService = friendGraphService;
+        this.notificationService = notificationService;
+        this.maxSessions = maxSessions;
+        this.maxSessionsPerHost = maxSessionsPerHost;
+        this.maxParticipants = maxParticipants;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.streamTimeoutMillis = streamTimeoutMillis;
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "cook-session-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Method to start a session for a recipe and invite friends to it.
+     * @param input The recipe and the IDs of the invited friends.
+     * @return A CookSessionDTO representing the new session.
+     * @throws ResponseStatusException If the recipe is not found, an invited user is not a friend, the user hosts too many sessions
+     * or too many sessions run.
+     */
+    public CookSessionDTO startSession(StartCookSessionDTO input) {
+        AuthenticatedUser host = getAuthenticatedUser();
+        RecipeDTO recipe = recipeService.findById(input.getRecipeId()); // Throws 404 if the recipe does not exist
+
+        List<Integer> invited = input.getInvite() != null ? input.getInvite() : List.of();
+        if (invited.size() + 1 > maxParticipants) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Too many invited users");
+        }
+        for (int friendId : invited) {
+            if (!friendGraphService.areFriends(host.getId(), friendId)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Only friends can be invited");
+            }
+        }
+
+        if (sessions.size() >= maxSessions) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many cooking sessions at the moment");
+        }
+
+        boolean[] admitted = new boolean[1];
+        sessionsByHost.compute(host.getId(), (id, running) -> {
+            int count = running != null ? running : 0;
+            admitted[0] = count < maxSessionsPerHost; // Checked and counted atomically, so parallel starts cannot exceed the limit
+            return admitted[0] ? count + 1 : running;
+        });
+        if (!admitted[0]) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many running cooking sessions, end one first");
+        }
+
+        int stepCount = recipe.getInstructions() != null ? recipe.getInstructions().size() : 0;
+        int ingredientCount = recipe.getIngredients() != null ? recipe.getIngredients().size() : 0;
+
+        CookSession session = new CookSession(UUID.randomUUID().toString(), recipe.getId(), host.getId(), stepCount, ingredientCount);
+        session.invited.addAll(invited);
+        session.participants.add(host.getId());
+        sessions.put(session.id, session);
+
+        CookSessionInviteDTO invite = new CookSessionInviteDTO(session.id, recipe.getId(), recipe.getTitle(), new UserDTO(host.getId(), host.getUsername()));
+        for (int friendId : session.invited) {
+            notificationService.publish(friendId, INVITE_EVENT, invite); // Invitations arrive over the friendship event stream
+        }
+
+        return toDTO(session);
+    }
+
+    /**
+     * Method to join a session the current user was invited to.
+     * @param sessionId The ID of the session.
+     * @return A CookSessionDTO representing the session.
+     * @throws ResponseStatusException If the session is not found or the user was not invited.
+     */
+    public CookSessionDTO joinSession(String sessionId) {
+        CookSession session = getSession(sessionId);
+        int userId = getAuthenticatedUser().getId();
+
+        if (userId != session.hostId && !session.invited.contains(userId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "User is not invited to this session");
+        }
+
+        session.participants.add(userId);
+        return toDTO(session);
+    }
+
+    /**
+     * Method to open the state stream of a session for the current participant.
+     * The current state is sent right away, every later update follows.
+     * @param sessionId The ID of the session.
+     * @return The emitter of the new connection.
+     */
+    public SseEmitter subscribe(String sessionId) {
+        CookSession session = getParticipantSession(sessionId);
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        session.subscribers.add(subscriber);
+
+        emitter.onCompletion(() -> session.subscribers.remove(subscriber));
+        emitter.onTimeout(() -> session.subscribers.remove(subscriber));
+        emitter.onError(error -> session.subscribers.remove(subscriber));
+
+        offer(subscriber, toStateDTO(session, session.state.get()));
+        return emitter;
+    }
+
+    /**
+     * Method to move the session to another step of the recipe.
+     * @param sessionId The ID of the session.
+     * @param step The index of the instruction in stepNumber order.
+     * @return The new state of the session.
+     */
+    public CookSessionStateDTO setStep(String sessionId, int step) {
+        CookSession session = getParticipantSession(sessionId);
+
+        if (step < 0 || step >= Math.max(1, session.stepCount)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Step is out of range");
+        }
+
+        return update(session, state -> state.withStep(step));
+    }
+
+    /**
+     * Method to start or clear the shared timer of the session.
+     * @param sessionId The ID of the session.
+     * @param seconds The duration of the timer in seconds, 0 to clear it, at most one day.
+     * @return The new state of the session.
+     * @throws ResponseStatusException If the duration is negative or longer than one day.
+     */
+    public CookSessionStateDTO setTimer(String sessionId, long seconds) {
+        CookSession session = getParticipantSession(sessionId);
+
+        if (seconds < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Timer must not be negative");
+        }
+        if (seconds > MAX_TIMER_SECONDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Timer must not be longer than one day");
+        }
+
+        long timerEndsAt = seconds == 0 ? 0 : System.currentTimeMillis() + seconds * 1000;
+        return update(session, state -> state.withTimer(timerEndsAt));
+    }
+
+    /**
+     * Method to check or uncheck an ingredient on the shared checklist.
+     * @param sessionId The ID of the session.
+     * @param ingredient The index of the ingredient in the recipe.
+     * @param checked Whether the ingredient is checked.
+     * @return The new state of the session.
+     */
+    public CookSessionStateDTO setIngredientChecked(String sessionId, int ingredient, boolean checked) {
+        CookSession session = getParticipantSession(sessionId);
+
+        if (ingredient < 0 || ingredient >= session.ingredientCount) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ingredient is out of range");
+        }
+
+        return update(session, state -> state.withChecked(ingredient, checked));
+    }
+
+    /**
+     * Method to end a session. Only the host can end it.
+     * @param sessionId The ID of the session.
+     */
+    public void endSession(String sessionId) {
+        CookSession session = getSession(sessionId);
+
+        if (getAuthenticatedUser().getId() != session.hostId) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Only the host can end the session");
+        }
+
+        end(session);
+    }
+
+    /**
+     * Method to end the sessions without updates for longer than the idle timeout.
+     */
+    @Scheduled(fixedRateString = "${cook.session.sweep-interval:60000}")
+    public void endIdleSessions() {
+        long now = System.currentTimeMillis();
+
+        for (CookSession session : sessions.values()) {
+            if (now - session.lastActivity.get() > idleTimeoutMillis) {
+                end(session);
+            } else {
+                for (Subscriber subscriber : session.subscribers) {
+                    senders.execute(() -> heartbeat(subscriber)); // Keep idle streams open through proxies
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        senders.shutdownNow();
+        for (CookSession session : sessions.values()) {
+            for (Subscriber subscriber : session.subscribers) {
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    /**
+     * Method to apply an update to the state of a session without locking and broadcast the result.
+     * @param session The session.
+     * @param change The change of the state.
+     * @return The new state of the session.
+     */
+    private CookSessionStateDTO update(CookSession session, UnaryOperator<SessionState> change) {
+        SessionState updated = session.state.updateAndGet(state -> {
+            if (state.ended) {
+                throw new ResponseStatusException(HttpStatus.GONE, "Session has ended");
+            }
+            return change.apply(state).withVersion(state.version + 1);
+        });
+        session.lastActivity.set(System.currentTimeMillis());
+
+        CookSessionStateDTO stateDTO = toStateDTO(session, updated);
+        for (Subscriber subscriber : session.subscribers) {
+            offer(subscriber, stateDTO);
+        }
+
+        return stateDTO;
+    }
+
+    /**
+     * Method to end a session, send the final state and close its streams.
+     * @param session The session.
+     */
+    private void end(CookSession session) {
+        if (sessions.remove(session.id) == null) {
+            return; // Already ended
+        }
+        sessionsByHost.computeIfPresent(session.hostId, (id, running) -> running > 1 ? running - 1 : null);
+
+        SessionState ended = session.state.updateAndGet(state -> state.withEnded().withVersion(state.version + 1));
+        CookSessionStateDTO stateDTO = toStateDTO(session, ended);
+
+        for (Subscriber subscriber : session.subscribers) {
+            offer(subscriber, stateDTO); // The stream is closed once the final state is sent
+        }
+    }
+
+    /**
+     * Method to hand a state to a subscriber. A state that was not sent yet is replaced, so only the newest one is sent.
+     * @param subscriber The subscriber.
+     * @param state The state.
+     */
+    private void offer(Subscriber subscriber, CookSessionStateDTO state) {
+        subscriber.pending.accumulateAndGet(state,
+                (current, offered) -> current == null || offered.getVersion() > current.getVersion() ? offered : current);
+
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    /**
+     * Method to send the pending state of a subscriber. Only one drain runs per subscriber at a time.
+     * @param subscriber The subscriber.
+     */
+    private void drain(Subscriber subscriber) {
+        try {
+            CookSessionStateDTO state;
+            while ((state = subscriber.pending.getAndSet(null)) != null) {
+                if (state.getVersion() > subscriber.sentVersion) { // Never send an older state after a newer one
+                    subscriber.emitter.send(SseEmitter.event().name(STATE_EVENT).data(state));
+                    subscriber.sentVersion = state.getVersion();
+                }
+
+                if (state.isEnded()) {
+                    subscriber.emitter.complete();
+                    return;
+                }
+            }
+        } catch (IOException | IllegalStateException exception) {
+            subscriber.emitter.completeWithError(exception); // Connection is gone, it is removed by its error callback
+        } finally {
+            subscriber.draining.set(false);
+        }
+
+        if (subscriber.pending.get() != null && subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber)); // State offered after the last poll
+        }
+    }
+
+    private void heartbeat(Subscriber subscriber) {
+        try {
+            subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+        } catch (IOException | IllegalStateException exception) {
+            subscriber.emitter.completeWithError(exception);
+        }
+    }
+
+    /**
+     * Method to get a running session.
+     * @param sessionId The ID of the session.
+     * @return The session.
+     * @throws ResponseStatusException If the session is not found.
+     */
+    private CookSession getSession(String sessionId) {
+        CookSession session = sessions.get(sessionId);
+        if (session == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Session not found");
+        }
+        return session;
+    }
+
+    /**
+     * Method to get a running session the current user participates in.
+     * @param sessionId The ID of the session.
+     * @return The session.
+     * @throws ResponseStatusException If the session is not found or the user has not joined it.
+     */
+    private CookSession getParticipantSession(String sessionId) {
+        CookSession session = getSession(sessionId);
+        if (!session.participants.contains(getAuthenticatedUser().getId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "User has not joined this session");
+        }
+        return session;
+    }
+
+    private CookSessionDTO toDTO(CookSession session) {
+        return new CookSessionDTO(
+                session.id,
+                session.recipeId,
+                session.hostId,
+                new ArrayList<>(session.invited),
+                new ArrayList<>(session.participants),
+                toStateDTO(session, session.state.get())
+        );
+    }
+
+    private CookSessionStateDTO toStateDTO(CookSession session, SessionState state) {
+        List<Integer> checked = new ArrayList<>();
+        for (int i = 0; i < session.ingredientCount; i++) {
+            if ((state.checked[i >>> 6] & (1L << i)) != 0) {
+                checked.add(i);
+            }
+        }
+
+        return new CookSessionStateDTO(session.id, state.version, state.step, state.timerEndsAt, checked, state.ended);
+    }
+
+    /**
+     * Method to get the currently authenticated user.
+     * @return The principal of the authenticated user.
+     */
+    private AuthenticatedUser getAuthenticatedUser() {
+        return (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    }
+
+    private static final class CookSession {
+        private final String id;
+        private final int recipeId;
+        private final int hostId;
+        private final int stepCount;
+        private final int ingredientCount;
+
+        private final Set<Integer> invited = ConcurrentHashMap.newKeySet();
+        private final Set<Integer> participants = ConcurrentHashMap.newKeySet();
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        private final AtomicReference<SessionState> state;
+        private final AtomicLong lastActivity = new AtomicLong(System.currentTimeMillis());
+
+        private CookSession(String id, int recipeId, int hostId, int stepCount, int ingredientCount) {
+            this.id = id;
+            this.recipeId = recipeId;
+            this.hostId = hostId;
+            this.stepCount = stepCount;
+            this.ingredientCount = ingredientCount;
+            this.state = new AtomicReference<>(new SessionState(0, 0, 0, new long[(ingredientCount + 63) / 64], false));
+        }
+    }
+
+    /**
+     * Immutable snapshot of the shared state of a session.
+     */
+    @AllArgsConstructor
+    private static final class SessionState {
+        private final long version;
+        private final int step;
+        private final long timerEndsAt;
+        private final long[] checked; // Bit set of the checked ingredients, never modified after construction
+        private final boolean ended;
+
+        private SessionState withVersion(long newVersion) {
+            return new SessionState(newVersion, step, timerEndsAt, checked, ended);
+        }
+
+        private SessionState withStep(int newStep) {
+            return new SessionState(version, newStep, timerEndsAt, checked, ended);
+        }
+
+        private SessionState withTimer(long newTimerEndsAt) {
+            return new SessionState(version, step, newTimerEndsAt, checked, ended);
+        }
+
+        private SessionState withChecked(int ingredient, boolean isChecked) {
+            long[] newChecked = Arrays.copyOf(checked, checked.length);
+            if (isChecked) {
+                newChecked[ingredient >>> 6] |= 1L << ingredient;
+            } else {
+                newChecked[ingredient >>> 6] &= ~(1L << ingredient);
+            }
+            return new SessionState(version, step, timerEndsAt, newChecked, ended);
+        }
+
+        private SessionState withEnded() {
+            return new SessionState(version, step, timerEndsAt, checked, true);
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicReference<CookSessionStateDTO> pending = new AtomicReference<>(); // Newest unsent state
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile long sentVersion = -1; // Only written by the single running drain
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
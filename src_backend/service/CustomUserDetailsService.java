@@ -2,20 +2,25 @@ package com.bee.cookwithfriends.service;
 
 import com.bee.cookwithfriends.entity.User;
 import com.bee.cookwithfriends.repositories.UserRepository;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     private final UserRepository userRepository;
+    private final UserCache userCache;
 
     /**
      * Constructor for CustomUserDetailsService.
      * @param userRepository The repository for handling user data.
+     * @param userCache The cache of authenticated users.
      */
-    public CustomUserDetailsService(UserRepository userRepository) {
+    public CustomUserDetailsService(UserRepository userRepository, UserCache userCache) {
         this.userRepository = userRepository;
+        this.userCache = userCache;
     }
 
     /**
@@ -35,4 +40,19 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         return user;
     }
+
+    /**
+     * Method to store a password that was rehashed on login with the current BCrypt strength.
+     * @param user The user that logged in.
+     * @param newPassword The newly encoded password.
+     * @return The updated user.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User storedUser = (User) user;
+        storedUser.setPassword(newPassword);
+        User savedUser = userRepository.save(storedUser);
+        userCache.invalidate(savedUser.getEmail()); // The row changed, the principal is rebuilt from it on the next lookup
+        return savedUser;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,188 @@
+package com.bee.cookwithfriends.service;
+
+import com.bee.cookwithfriends.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory friend graph over user IDs.
+ * Every user has a sorted array of the IDs of their friends, friendships are stored in both directions,
+ * so that friendship checks and friend lists need no entity loads.
+ */
+@Service
+public class FriendGraphService {
+    private static final int[] NO_FRIENDS = new int[0];
+
+    private final UserRepository userRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //Sorted, duplicate-free friend IDs by user ID. Arrays are replaced on change, never modified in place
+    private final Map<Integer, int[]> adjacency = new HashMap<>();
+
+    /**
+     * Constructor for FriendGraphService.
+     * @param userRepository The repository for handling user data.
+     */
+    public FriendGraphService(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Method to build the graph from the friends table once the service is created.
+     */
+    @PostConstruct
+    public void load() {
+        List<Object[]> edges = userRepository.findAllFriendships(); // Only the two IDs of every row are selected
+
+        // First pass counts the friends of every user, so that every array is allocated once
+        Map<Integer, int[]> degrees = new HashMap<>();
+        for (Object[] edge : edges) {
+            degrees.computeIfAbsent(((Number) edge[0]).intValue(), id -> new int[1])[0]++;
+            degrees.computeIfAbsent(((Number) edge[1]).intValue(), id -> new int[1])[0]++;
+        }
+
+        Map<Integer, int[]> built = new HashMap<>(degrees.size() * 2);
+        Map<Integer, int[]> fill = new HashMap<>(degrees.size() * 2);
+        degrees.forEach((userId, degree) -> {
+            built.put(userId, new int[degree[0]]);
+            fill.put(userId, new int[1]);
+        });
+
+        for (Object[] edge : edges) {
+            int personId = ((Number) edge[0]).intValue();
+            int friendId = ((Number) edge[1]).intValue();
+            built.get(personId)[fill.get(personId)[0]++] = friendId;
+            built.get(friendId)[fill.get(friendId)[0]++] = personId;
+        }
+
+        built.replaceAll((userId, friendIds) -> sortedDistinct(friendIds));
+
+        lock.writeLock().lock();
+        try {
+            adjacency.clear();
+            adjacency.putAll(built);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method to check if two users are friends.
+     * @param userId The ID of the first user.
+     * @param otherId The ID of the second user.
+     * @return True if the users are friends, false otherwise.
+     */
+    public boolean areFriends(int userId, int otherId) {
+        lock.readLock().lock();
+        try {
+            int[] friends = adjacency.getOrDefault(userId, NO_FRIENDS);
+            int[] otherFriends = adjacency.getOrDefault(otherId, NO_FRIENDS);
+
+            return friends.length <= otherFriends.length
+                    ? Arrays.binarySearch(friends, otherId) >= 0 // Search the smaller of both lists
+                    : Arrays.binarySearch(otherFriends, userId) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method to get the friends of a user.
+     * @param userId The ID of the user.
+     * @return The sorted IDs of the friends. The array must not be modified.
+     */
+    public int[] friendIds(int userId) {
+        lock.readLock().lock();
+        try {
+            return adjacency.getOrDefault(userId, NO_FRIENDS);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method to get the number of friends of a user.
+     * @param userId The ID of the user.
+     * @return The number of friends.
+     */
+    public int friendCount(int userId) {
+        return friendIds(userId).length;
+    }
+
+    /**
+     * Method to get the IDs of all users with at least one friend.
+     * @return A snapshot of the user IDs.
+     */
+    public int[] userIds() {
+        lock.readLock().lock();
+        try {
+            int[] userIds = new int[adjacency.size()];
+            int position = 0;
+            for (int userId : adjacency.keySet()) {
+                userIds[position++] = userId;
+            }
+            return userIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method to add a stored friendship to the graph.
+     * @param userId The ID of the first user.
+     * @param otherId The ID of the second user.
+     */
+    public void addFriendship(int userId, int otherId) {
+        lock.writeLock().lock();
+        try {
+            adjacency.put(userId, insert(adjacency.getOrDefault(userId, NO_FRIENDS), otherId));
+            adjacency.put(otherId, insert(adjacency.getOrDefault(otherId, NO_FRIENDS), userId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method to insert an ID into a copy of a sorted array.
+     * @param friendIds The sorted array.
+     * @param friendId The ID to insert.
+     * @return The sorted array containing the ID.
+     */
+    private static int[] insert(int[] friendIds, int friendId) {
+        int position = Arrays.binarySearch(friendIds, friendId);
+        if (position >= 0) {
+            return friendIds; // Already stored
+        }
+
+        position = -position - 1;
+        int[] result = new int[friendIds.length + 1];
+        System.arraycopy(friendIds, 0, result, 0, position);
+        result[position] = friendId;
+        System.arraycopy(friendIds, position, result, position + 1, friendIds.length - position);
+        return result;
+    }
+
+    /**
+     * Method to sort an array and drop duplicate IDs, which occur if a friendship is stored in both directions.
+     * @param friendIds The IDs.
+     * @return The sorted, duplicate-free IDs.
+     */
+    private static int[] sortedDistinct(int[] friendIds) {
+        Arrays.sort(friendIds);
+
+        int size = 0;
+        for (int i = 0; i < friendIds.length; i++) {
+            if (size == 0 || friendIds[size - 1] != friendIds[i]) {
+                friendIds[size++] = friendIds[i];
+            }
+        }
+
+        return size == friendIds.length ? friendIds : Arrays.copyOf(friendIds, size);
+    }
+}
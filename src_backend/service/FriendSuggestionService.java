@@ -0,0 +1,231 @@
+package com.bee.cookwithfriends.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * "People you may know" suggestions, ranked by the number of mutual friends.
+ * Suggestions are precomputed per user from the sorted adjacency arrays of the friend graph,
+ * rebuilt nightly on a fork-join pool and recomputed for the affected users when a friendship is added.
+ * Added friendships only mark the affected users, who are recomputed once per debounce interval however many friendships they gained.
+ */
+@Service
+public class FriendSuggestionService {
+    private static final int SEQUENTIAL_THRESHOLD = 64; // Users per fork-join leaf task
+
+    private final FriendGraphService friendGraphService;
+    private final int maxSuggestions;
+    private final ForkJoinPool pool;
+
+    //Precomputed suggestions by user ID, replaced on recomputation
+    private final Map<Integer, Suggestions> suggestions = new ConcurrentHashMap<>();
+
+    //Users whose two-hop neighbourhood changed since the last recomputation of the marked users
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+
+    //Stamps the start of every recomputation, so an older one never replaces the result of a newer one
+    private final AtomicLong computations = new AtomicLong();
+
+    /**
+     * Constructor for FriendSuggestionService.
+     * @param friendGraphService The in-memory graph of friendships.
+     * @param maxSuggestions The number of suggestions kept per user.
+     * @param parallelism The parallelism of the rebuild pool, 0 for the number of available processors.
+     */
+    public FriendSuggestionService(
+            FriendGraphService friendGraphService,
+            @Value("${user.suggestions.max:50}") int maxSuggestions,
+            @Value("${user.suggestions.parallelism:0}") int parallelism
+    ) {
+        this.friendGraphService = friendGraphService;
+        this.maxSuggestions = maxSuggestions;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Method to start the first full build in the background once the service is created.
+     */
+    @PostConstruct
+    void init() {
+        pool.execute(this::rebuild);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Method to recompute the suggestions of all users on the fork-join pool.
+     */
+    @Scheduled(cron = "${user.suggestions.rebuild-cron:0 0 3 * * *}")
+    public void rebuild() {
+        int[] userIds = friendGraphService.userIds();
+        pool.invoke(new RebuildTask(userIds, 0, userIds.length));
+    }
+
+    /**
+     * Method to get the suggestions of a user.
+     * Suggestions can be slightly stale, callers filter out users that became friends in the meantime.
+     * @param userId The ID of the user.
+     * @return The suggestions, ordered by descending number of mutual friends.
+     */
+    public Suggestions getSuggestions(int userId) {
+        Suggestions stored = suggestions.get(userId);
+        if (stored != null) {
+            return stored;
+        }
+
+        return recompute(userId); // Not computed yet, e.g. a user who just got their first friend
+    }
+
+    /**
+     * Method to mark the users affected by a friendship that was added to the friend graph.
+     * Both users are marked, as are their friends, whose two-hop neighbourhoods changed.
+     * @param userId The ID of the first user.
+     * @param otherId The ID of the second user.
+     */
+    public void friendshipAdded(int userId, int otherId) {
+        dirty.add(userId);
+        dirty.add(otherId);
+
+        for (int friendId : friendGraphService.friendIds(userId)) {
+            dirty.add(friendId);
+        }
+        for (int friendId : friendGraphService.friendIds(otherId)) {
+            dirty.add(friendId);
+        }
+    }
+
+    /**
+     * Method to recompute the suggestions of the users marked since the last run on the fork-join pool.
+     */
+    @Scheduled(fixedDelayString = "${user.suggestions.debounce:5000}")
+    public void recomputeDirty() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        int[] userIds = new int[dirty.size()];
+        int size = 0;
+        Iterator<Integer> iterator = dirty.iterator();
+        while (iterator.hasNext() && size < userIds.length) {
+            userIds[size++] = iterator.next();
+            iterator.remove(); // Marked again by a friendship added from now on, so no change is missed
+        }
+
+        pool.invoke(new RebuildTask(userIds, 0, size));
+    }
+
+    /**
+     * Method to compute and store the suggestions of one user.
+     * The sorted friend lists of all friends are merged, so that every friend of a friend appears once per mutual friend.
+     * @param userId The ID of the user.
+     * @return The stored suggestions, those of a newer recomputation if one finished first.
+     */
+    private Suggestions recompute(int userId) {
+        long stamp = computations.incrementAndGet(); // Taken before reading the graph
+        int[] friends = friendGraphService.friendIds(userId);
+
+        int total = 0;
+        for (int friendId : friends) {
+            total += friendGraphService.friendCount(friendId);
+        }
+
+        int[] twoHop = new int[total];
+        int position = 0;
+        for (int friendId : friends) {
+            int[] friendsOfFriend = friendGraphService.friendIds(friendId);
+            int length = Math.min(friendsOfFriend.length, total - position); // The graph may have grown since counting
+            System.arraycopy(friendsOfFriend, 0, twoHop, position, length);
+            position += length;
+        }
+        Arrays.sort(twoHop, 0, position);
+
+        // Count the runs of equal IDs while walking the sorted own friends along, to skip existing friends and the user itself
+        long[] ranked = new long[position];
+        int candidates = 0;
+        int friendCursor = 0;
+        for (int i = 0; i < position; ) {
+            int candidate = twoHop[i];
+            int run = 1;
+            while (i + run < position && twoHop[i + run] == candidate) {
+                run++;
+            }
+            i += run;
+
+            while (friendCursor < friends.length && friends[friendCursor] < candidate) {
+                friendCursor++;
+            }
+            boolean isFriend = friendCursor < friends.length && friends[friendCursor] == candidate;
+
+            if (candidate != userId && !isFriend) {
+                ranked[candidates++] = ((long) run << 32) | (Integer.MAX_VALUE - candidate); // Most mutual friends first, then lower IDs
+            }
+        }
+        Arrays.sort(ranked, 0, candidates);
+
+        int size = Math.min(maxSuggestions, candidates);
+        int[] userIds = new int[size];
+        int[] mutualFriends = new int[size];
+        for (int i = 0; i < size; i++) {
+            long key = ranked[candidates - 1 - i];
+            userIds[i] = Integer.MAX_VALUE - (int) key;
+            mutualFriends[i] = (int) (key >>> 32);
+        }
+
+        Suggestions result = new Suggestions(userIds, mutualFriends, stamp);
+        return suggestions.merge(userId, result, (stored, computed) -> stored.stamp > computed.stamp ? stored : computed);
+    }
+
+    /**
+     * Fork-join task recomputing the suggestions of a range of users.
+     */
+    @AllArgsConstructor
+    private final class RebuildTask extends RecursiveAction {
+        private final int[] userIds;
+        private final int from;
+        private final int to;
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    recompute(userIds[i]);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new RebuildTask(userIds, from, middle), new RebuildTask(userIds, middle, to));
+        }
+    }
+
+    /**
+     * Suggested user IDs with their number of mutual friends at the same positions.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Suggestions {
+        private final int[] userIds;
+        private final int[] mutualFriends;
+
+        @Getter(AccessLevel.NONE)
+        private final long stamp; // Start of the recomputation that produced these suggestions
+    }
+}
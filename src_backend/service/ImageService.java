@@ -17,15 +17,21 @@ import java.nio.file.StandardCopyOption;
 public class ImageService {
     private final Path rootLocation;
     private final RecipeRepository recipeRepository;
+    private final RecipeDetailCache detailCache;
+    private final ImageVariantService variantService;
 
     /**
      * Constructor for ImageService.
      * @param imageConfig The configuration for image storage.
      * @param recipeRepository The repository for handling recipe data.
+     * @param detailCache The cache of assembled recipe details.
+     * @param variantService The service generating the resized image variants.
      */
-    public ImageService(ImageConfig imageConfig, RecipeRepository recipeRepository) {
+    public ImageService(ImageConfig imageConfig, RecipeRepository recipeRepository, RecipeDetailCache detailCache, ImageVariantService variantService) {
         this.rootLocation = imageConfig.getImageStoragePath(); // Get the root location for image storage
         this.recipeRepository = recipeRepository;
+        this.detailCache = detailCache;
+        this.variantService = variantService;
     }
 
     /**
@@ -48,36 +54,37 @@ public class ImageService {
             fileExtension = file.getOriginalFilename().substring(dotIndex); // Extract the file extension
         }
 
+        Path storedFile = rootLocation.resolve(filename + fileExtension);
         try {
-            Files.copy(file.getInputStream(), rootLocation.resolve(filename + fileExtension), StandardCopyOption.REPLACE_EXISTING); // Copy the file to the storage location
+            Files.copy(file.getInputStream(), storedFile, StandardCopyOption.REPLACE_EXISTING); // Copy the file to the storage location
         } catch (IOException exception) {
             throw new IOException("Could not store image for recipe " + recipe.getTitle() + ". Please try again!", exception); // Throw an exception if the file cannot be stored
         }
+
+        detailCache.invalidate(recipeId); // Drop the cached detail of the recipe
+        variantService.generateVariants(recipeId, storedFile); // Resize in the background, the upload returns right away
     }
 
     /**
-     * Method to load an image for a recipe.
+     * Method to load a resized variant of the image for a recipe.
+     * The original image is returned while the variant is not generated yet.
      * @param recipeId The ID of the recipe.
+     * @param size The size of the variant.
      * @return A Resource representing the image file.
      */
-    public Resource loadFile(int recipeId) {
+    public Resource loadFile(int recipeId, ImageVariantService.Size size) {
         Recipe recipe = recipeRepository.findById(recipeId).orElseThrow(() -> new RuntimeException("Recipe not found")); // Find the recipe by ID
-        String filename = getFilename(recipe); // Generate the filename for the image
-
-        try {
-            System.out.println(filename); // Print the filename for debugging purposes
+        Path original = getPathWithFileExtension(getFilename(recipe)); // Get the path to the uploaded image
 
-            Path existingFilePath = getPathWithFileExtension(filename); // Get the path to the image file with the correct extension
-
-            if (existingFilePath == null) {
-                throw new RuntimeException("No matching file found for recipe ID: " + recipeId); // Throw an exception if no matching file is found
-            }
-
-            return new FileSystemResource(existingFilePath); // Return the file as a Resource
+        Path variant = variantService.getVariant(recipeId, size, original);
+        if (variant != null) {
+            return new FileSystemResource(variant); // Return the resized variant
+        }
 
-        } catch (Exception exception) {
-            throw new RuntimeException("Error: " + exception.getMessage(), exception); // Throw an exception if there is an error
+        if (original == null) {
+            throw new RuntimeException("No matching file found for recipe ID: " + recipeId); // Throw an exception if no matching file is found
         }
+        return new FileSystemResource(original); // Fall back to the original until the variant is ready
     }
 
     /**
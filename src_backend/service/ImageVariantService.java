@@ -0,0 +1,451 @@
+package com.bee.cookwithfriends.service;
+
+import com.bee.cookwithfriends.config.ImageConfig;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates resized, recompressed JPEG variants of uploaded recipe images on a bounded background executor.
+ * Variants are encoded from the pixels only, so EXIF and other metadata of the upload are dropped.
+ */
+@Service
+public class ImageVariantService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    private final Path variantLocation;
+    private final float jpegQuality;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+
+    //Latest upload version by recipe ID, so that a job for an older upload never overwrites newer variants.
+    //Variants are moved into place and deleted inside compute on this map, which serializes both per recipe
+    private final Map<Integer, Long> uploadVersions = new ConcurrentHashMap<>();
+    private final AtomicLong versionCounter = new AtomicLong();
+
+    //Upload version by recipe ID whose variants could not be generated, so that requests do not retry them
+    private final Map<Integer, Long> failedVersions = new ConcurrentHashMap<>();
+
+    //Upload versions whose variants are being generated, to not queue the same work twice
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Sizes of the generated variants by their longest edge in pixels.
+     */
+    public enum Size {
+        THUMBNAIL(160),
+        CARD(480),
+        FULL(1600);
+
+        private final int maxEdge;
+
+        Size(int maxEdge) {
+            this.maxEdge = maxEdge;
+        }
+
+        /**
+         * Method to parse a size request parameter.
+         * @param value The parameter value, e.g. "thumbnail".
+         * @return The size.
+         * @throws ResponseStatusException If the value is not a known size.
+         */
+        public static Size fromParameter(String value) {
+            try {
+                return Size.valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException exception) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown image size: " + value);
+            }
+        }
+    }
+
+    /**
+     * Constructor for ImageVariantService.
+     * @param imageConfig The configuration for image storage.
+     * @param jpegQuality The JPEG quality of the variants between 0 and 1.
+     * @param maxPixels The maximum number of pixels an uploaded image may declare.
+     * @param threads The number of threads generating variants.
+     * @param queueCapacity The maximum number of uploads waiting for their variants.
+     */
+    public ImageVariantService(
+            ImageConfig imageConfig,
+            @Value("${image.variants.quality:0.8}") float jpegQuality,
+            @Value("${image.variants.max-pixels:25000000}") long maxPixels,
+            @Value("${image.variants.threads:2}") int threads,
+            @Value("${image.variants.queue-capacity:100}") int queueCapacity
+    ) {
+        this.variantLocation = imageConfig.getImageStoragePath().resolve("variants");
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        try {
+            Files.createDirectories(variantLocation);
+        } catch (IOException exception) {
+            throw new RuntimeException("Failed to create image variant directory", exception);
+        }
+    }
+
+    /**
+     * Method to drop the variants of the previous image and schedule the generation of all variants after a new image was uploaded.
+     * Until the new variants exist, requests are answered with the new original.
+     * @param recipeId The ID of the recipe.
+     * @param original The path of the uploaded image.
+     * @throws IOException If the previous variants cannot be deleted.
+     */
+    public void generateVariants(int recipeId, Path original) throws IOException {
+        long version = versionCounter.incrementAndGet();
+
+        try {
+            uploadVersions.compute(recipeId, (id, previous) -> {
+                for (Size size : Size.values()) {
+                    try {
+                        Files.deleteIfExists(variantPath(id, size)); // Never serve a variant of the replaced image
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                }
+                return version;
+            });
+        } catch (UncheckedIOException exception) {
+            throw new IOException("Could not delete the previous image variants of recipe " + recipeId, exception.getCause());
+        }
+
+        submit(recipeId, original, version);
+    }
+
+    /**
+     * Method to get the path of a generated variant. Missing variants of an existing image are scheduled for generation.
+     * @param recipeId The ID of the recipe.
+     * @param size The size of the variant.
+     * @param original The path of the original image, or null if there is none.
+     * @return The path of the variant, or null if it is not generated yet.
+     */
+    public Path getVariant(int recipeId, Size size, Path original) {
+        Path variant = variantPath(recipeId, size);
+        if (Files.isReadable(variant)) {
+            return variant;
+        }
+
+        if (original != null) {
+            long version = uploadVersions.computeIfAbsent(recipeId, id -> versionCounter.incrementAndGet()); // E.g. images uploaded before variants existed
+            if (!pending.contains(version) && !Long.valueOf(version).equals(failedVersions.get(recipeId))) {
+                submit(recipeId, original, version); // E.g. the upload was skipped because the queue was full
+            }
+        }
+        return null;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Method to queue the generation of the variants of one upload.
+     * @param recipeId The ID of the recipe.
+     * @param original The path of the uploaded image.
+     * @param version The upload version the variants belong to.
+     */
+    private void submit(int recipeId, Path original, long version) {
+        if (!pending.add(version)) {
+            return; // Already queued for this upload
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    writeVariants(recipeId, original, version);
+                } catch (IOException | RuntimeException exception) {
+                    failedVersions.put(recipeId, version); // The original is served for this upload
+                    logger.warn("Could not generate image variants for recipe {}", recipeId, exception);
+                } finally {
+                    pending.remove(version); // A job of an older upload never clears the flag of a newer one
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            pending.remove(version); // Queue is full, the original is served until a later request schedules the variants
+            logger.warn("Image variant queue is full, skipping recipe {}", recipeId);
+        }
+    }
+
+    /**
+     * Method to decode an image once and write all of its variants.
+     * @param recipeId The ID of the recipe.
+     * @param original The path of the uploaded image.
+     * @param version The upload version the variants belong to.
+     * @throws IOException If the image cannot be read or a variant cannot be written.
+     */
+    private void writeVariants(int recipeId, Path original, long version) throws IOException {
+        BufferedImage image = orient(decode(original, Size.FULL.maxEdge), readExifOrientation(original)); // Metadata is dropped, so the rotation is applied to the pixels
+
+        for (Size size : Size.values()) {
+            if (!Long.valueOf(version).equals(uploadVersions.get(recipeId))) {
+                return; // A newer image was uploaded meanwhile
+            }
+
+            Path temporary = Files.createTempFile(variantLocation, recipeId + "_", ".tmp");
+            try {
+                writeJpeg(scaleDown(image, size.maxEdge), temporary);
+                uploadVersions.computeIfPresent(recipeId, (id, current) -> {
+                    if (current == version) { // Checked again together with the move, a new upload deletes the variants under the same lock
+                        try {
+                            Files.move(temporary, variantPath(id, size), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        } catch (IOException exception) {
+                            throw new UncheckedIOException(exception);
+                        }
+                    }
+                    return current;
+                });
+            } catch (UncheckedIOException exception) {
+                throw exception.getCause();
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /**
+     * Method to decode an uploaded image after checking its dimensions, so that a small file declaring
+     * a huge image cannot exhaust the memory. Large images are subsampled while decoding, so only
+     * about the largest variant is held in memory instead of the full resolution.
+     * @param original The path of the uploaded image.
+     * @param maxEdge The longest edge of the largest variant, which the decoded image stays at least as large as.
+     * @return The decoded image.
+     * @throws IOException If the format is not supported, the image is too large or cannot be read.
+     */
+    private BufferedImage decode(Path original, int maxEdge) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + original.getFileName());
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+
+                int width = reader.getWidth(0); // Read from the header, no pixels are decoded yet
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IOException("Image of " + width + "x" + height + " pixels exceeds the limit of " + maxPixels + " pixels");
+                }
+
+                ImageReadParam parameters = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / maxEdge); // Rounded down, the longest edge stays at least maxEdge
+                parameters.setSourceSubsampling(step, step, 0, 0);
+
+                return reader.read(0, parameters);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private Path variantPath(int recipeId, Size size) {
+        return variantLocation.resolve(recipeId + "_" + size.name().toLowerCase(Locale.ROOT) + ".jpg");
+    }
+
+    /**
+     * Method to encode an image as JPEG without metadata.
+     * @param image The RGB image.
+     * @param target The path to write to.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam parameters = writer.getDefaultWriteParam();
+        parameters.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        parameters.setCompressionQuality(jpegQuality);
+        parameters.setProgressiveMode(ImageWriteParam.MODE_DEFAULT); // Progressive JPEGs show a preview while loading
+
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), parameters); // No metadata is written
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Method to scale an image so that its longest edge fits a maximum, halving in steps for a smooth result.
+     * Images that already fit are returned unchanged.
+     * @param image The image.
+     * @param maxEdge The maximum length of the longest edge.
+     * @return The scaled image.
+     */
+    private static BufferedImage scaleDown(BufferedImage image, int maxEdge) {
+        int longestEdge = Math.max(image.getWidth(), image.getHeight());
+        if (longestEdge <= maxEdge) {
+            return image;
+        }
+
+        double scale = (double) maxEdge / longestEdge;
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+
+        return current;
+    }
+
+    /**
+     * Method to rotate and mirror an image according to its EXIF orientation onto an opaque RGB canvas, as JPEG has no alpha channel.
+     * Upright images that the JPEG writer accepts as they are are returned without a copy.
+     * @param image The decoded image.
+     * @param orientation The EXIF orientation between 1 and 8.
+     * @return The upright RGB image.
+     */
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        boolean upright = orientation <= 1 || orientation > 8;
+        int type = image.getType();
+        if (upright && (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_3BYTE_BGR)) {
+            return image;
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swapped = orientation >= 5 && orientation <= 8; // Orientations 5 to 8 are rotated by 90 degrees
+
+        AffineTransform transform = upright ? new AffineTransform() : switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, width, 0); // Mirrored horizontally
+            case 3 -> new AffineTransform(-1, 0, 0, -1, width, height); // Rotated by 180 degrees
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, height); // Mirrored vertically
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0); // Transposed
+            case 6 -> new AffineTransform(0, 1, -1, 0, height, 0); // Rotated clockwise
+            case 7 -> new AffineTransform(0, -1, -1, 0, height, width); // Transversed
+            default -> new AffineTransform(0, -1, 1, 0, 0, width); // Rotated counterclockwise
+        };
+
+        BufferedImage oriented = new BufferedImage(swapped ? height : width, swapped ? width : height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = oriented.createGraphics();
+        graphics.setColor(Color.WHITE); // Transparent areas become white
+        graphics.fillRect(0, 0, oriented.getWidth(), oriented.getHeight());
+        graphics.drawImage(image, transform, null);
+        graphics.dispose();
+        return oriented;
+    }
+
+    /**
+     * Method to read the EXIF orientation of a JPEG file.
+     * @param file The image file.
+     * @return The orientation between 1 and 8, 1 if the file has none or is no JPEG.
+     */
+    private static int readExifOrientation(Path file) {
+        try (InputStream stream = Files.newInputStream(file); DataInputStream input = new DataInputStream(stream)) {
+            if (input.readUnsignedShort() != 0xFFD8) {
+                return 1; // No JPEG
+            }
+
+            while (true) {
+                int marker = input.readUnsignedShort();
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA) {
+                    return 1; // Start of the image data, no EXIF segment before it
+                }
+
+                int length = input.readUnsignedShort() - 2;
+                byte[] segment = new byte[length];
+                input.readFully(segment);
+
+                if (marker == 0xFFE1 && length > 14 && new String(segment, 0, 4, StandardCharsets.US_ASCII).equals("Exif")) {
+                    return orientationFromTiff(segment, 6);
+                }
+            }
+        } catch (IOException | RuntimeException exception) {
+            return 1; // Unreadable metadata, keep the image as decoded
+        }
+    }
+
+    /**
+     * Method to find the orientation tag in the first IFD of an EXIF TIFF structure.
+     * @param data The APP1 segment.
+     * @param start The offset of the TIFF header in the segment.
+     * @return The orientation, 1 if the tag is missing.
+     */
+    private static int orientationFromTiff(byte[] data, int start) {
+        boolean littleEndian = data[start] == 'I';
+        int ifd = start + readInt(data, start + 4, littleEndian);
+        int entries = readShort(data, ifd, littleEndian);
+
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (readShort(data, entry, littleEndian) == 0x0112) {
+                return readShort(data, entry + 8, littleEndian);
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int first = data[offset] & 0xFF;
+        int second = data[offset + 1] & 0xFF;
+        return littleEndian ? (second << 8) | first : (first << 8) | second;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean littleEndian) {
+        int high = readShort(data, offset + (littleEndian ? 2 : 0), littleEndian);
+        int low = readShort(data, offset + (littleEndian ? 0 : 2), littleEndian);
+        return (high << 16) | low;
+    }
+}
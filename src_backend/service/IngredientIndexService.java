@@ -0,0 +1,199 @@
+package com.bee.cookwithfriends.service;
+
+import com.bee.cookwithfriends.repositories.RecipeRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Service
+public class IngredientIndexService {
+    private final RecipeRepository recipeRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //Ingredient ID -> sorted IDs of the recipes using it
+    private final Map<Integer, PostingList> postings = new HashMap<>();
+    //Recipe ID -> number of distinct ingredients of the recipe
+    private final Map<Integer, Integer> ingredientCounts = new HashMap<>();
+
+    /**
+     * Constructor for IngredientIndexService.
+     * @param recipeRepository The repository for handling recipe data.
+     */
+    public IngredientIndexService(RecipeRepository recipeRepository) {
+        this.recipeRepository = recipeRepository;
+    }
+
+    /**
+     * Method to build the index from the stored recipe ingredients once the service is created.
+     */
+    @PostConstruct
+    public void buildIndex() {
+        List<Object[]> rows = recipeRepository.findAllRecipeIngredientIds(); // Pairs of recipe ID and ingredient ID
+
+        Map<Integer, Set<Integer>> ingredientsByRecipe = new HashMap<>();
+        for (Object[] row : rows) {
+            ingredientsByRecipe.computeIfAbsent((Integer) row[0], id -> new HashSet<>()).add((Integer) row[1]);
+        }
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            ingredientCounts.clear();
+            for (Map.Entry<Integer, Set<Integer>> entry : ingredientsByRecipe.entrySet()) {
+                indexRecipe(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method to add a newly stored recipe to the index.
+     * @param recipeId The ID of the recipe.
+     * @param ingredientIds The IDs of the ingredients of the recipe.
+     */
+    public void addRecipe(int recipeId, Collection<Integer> ingredientIds) {
+        lock.writeLock().lock();
+        try {
+            indexRecipe(recipeId, new HashSet<>(ingredientIds));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method to find the recipes that can be cooked with the given ingredients.
+     * The posting lists of the ingredients are merged in one pass, counting for every recipe how many of the given ingredients it uses.
+     * Recipes are ranked by the number of matched ingredients, then by the share of the recipe's ingredients that is covered.
+     * @param ingredientIds The IDs of the available ingredients.
+     * @param minMatches The minimum number of given ingredients a recipe has to use.
+     * @param limit The maximum number of results.
+     * @return The best matching recipes, best match first.
+     */
+    public List<IngredientMatch> findByIngredients(Collection<Integer> ingredientIds, int minMatches, int limit) {
+        if (ingredientIds.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            PriorityQueue<Cursor> merge = new PriorityQueue<>(Comparator.comparingInt(Cursor::current));
+            for (Integer ingredientId : new HashSet<>(ingredientIds)) {
+                PostingList list = postings.get(ingredientId);
+                if (list != null && list.size > 0) {
+                    merge.add(new Cursor(list));
+                }
+            }
+
+            Comparator<IngredientMatch> ranking = Comparator.comparingInt(IngredientMatch::getMatchedIngredients)
+                    .thenComparingDouble(IngredientMatch::getCoverage)
+                    .thenComparing(Comparator.comparingInt(IngredientMatch::getRecipeId).reversed());
+            PriorityQueue<IngredientMatch> heap = new PriorityQueue<>(limit + 1, ranking); // Min-heap of the current best results
+
+            while (!merge.isEmpty()) {
+                int recipeId = merge.peek().current();
+                int matches = 0;
+
+                while (!merge.isEmpty() && merge.peek().current() == recipeId) { // Count the lists containing this recipe
+                    Cursor cursor = merge.poll();
+                    matches++;
+                    if (cursor.advance()) {
+                        merge.add(cursor);
+                    }
+                }
+
+                if (matches >= minMatches) {
+                    int total = ingredientCounts.getOrDefault(recipeId, matches);
+                    heap.offer(new IngredientMatch(recipeId, matches, total));
+                    if (heap.size() > limit) {
+                        heap.poll(); // Drop the worst result
+                    }
+                }
+            }
+
+            List<IngredientMatch> result = new ArrayList<>(heap);
+            result.sort(ranking.reversed());
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method to add the ingredients of a recipe to the index. The caller has to hold the write lock.
+     * @param recipeId The ID of the recipe.
+     * @param ingredientIds The distinct IDs of the ingredients of the recipe.
+     */
+    private void indexRecipe(int recipeId, Set<Integer> ingredientIds) {
+        if (ingredientCounts.containsKey(recipeId)) {
+            return; // Recipe is already indexed
+        }
+
+        ingredientCounts.put(recipeId, ingredientIds.size());
+        for (Integer ingredientId : ingredientIds) {
+            postings.computeIfAbsent(ingredientId, id -> new PostingList()).add(recipeId);
+        }
+    }
+
+    /**
+     * A recipe found by the ingredient search.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class IngredientMatch {
+        private final int recipeId;
+        private final int matchedIngredients;
+        private final int totalIngredients;
+
+        public double getCoverage() {
+            return totalIngredients == 0 ? 0 : (double) matchedIngredients / totalIngredients;
+        }
+    }
+
+    /**
+     * Sorted list of recipe IDs stored in a primitive array.
+     */
+    private static final class PostingList {
+        private int[] recipeIds = new int[4];
+        private int size = 0;
+
+        private void add(int recipeId) {
+            int position = Arrays.binarySearch(recipeIds, 0, size, recipeId);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+
+            if (size == recipeIds.length) {
+                recipeIds = Arrays.copyOf(recipeIds, size * 2);
+            }
+            System.arraycopy(recipeIds, position, recipeIds, position + 1, size - position); // New IDs are usually appended at the end
+            recipeIds[position] = recipeId;
+            size++;
+        }
+    }
+
+    /**
+     * Read position in a posting list during a merge.
+     */
+    private static final class Cursor {
+        private final PostingList list;
+        private int position = 0;
+
+        private Cursor(PostingList list) {
+            this.list = list;
+        }
+
+        private int current() {
+            return list.recipeIds[position];
+        }
+
+        private boolean advance() {
+            return ++position < list.size;
+        }
+    }
+}
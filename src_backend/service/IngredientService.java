@@ -0,0 +1,197 @@
+package com.bee.cookwithfriends.service;
+
+import com.bee.cookwithfriends.dto.recipe.RecipeIngredientDTO;
+import com.bee.cookwithfriends.entity.Ingredient;
+import com.bee.cookwithfriends.repositories.IngredientRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class IngredientService {
+    private static final String INSERT_IGNORE_INGREDIENT = "INSERT IGNORE INTO ingredients (name, standard_unit) VALUES (?, ?)";
+
+    private final IngredientRepository ingredientRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    //Lower-cased requested ingredient name -> ingredient ID. The stored name may differ by accents or trailing spaces,
+    //which the database collation ignores, so rows are matched back to the names they were requested with
+    private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for IngredientService.
+     * @param ingredientRepository The repository for handling ingredient data.
+     * @param jdbcTemplate The JdbcTemplate for batched inserts.
+     */
+    public IngredientService(IngredientRepository ingredientRepository, JdbcTemplate jdbcTemplate) {
+        this.ingredientRepository = ingredientRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Method to warm the cache with all stored ingredients once the service is created.
+     */
+    @PostConstruct
+    public void loadIngredients() {
+        for (Object[] row : ingredientRepository.findAllNamesAndIds()) {
+            idsByName.put(key((String) row[0]), (Integer) row[1]);
+        }
+    }
+
+    /**
+     * Method to resolve the IDs of existing ingredients.
+     * Names missing in the cache are looked up with a single query. Unknown names are left out.
+     * @param names The names of the ingredients.
+     * @return The ingredient ID per lower-cased requested name.
+     */
+    public Map<String, Integer> resolveExisting(Collection<String> names) {
+        Map<String, Integer> resolved = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+
+        for (String name : names) {
+            Integer id = idsByName.get(key(name));
+            if (id != null) {
+                resolved.put(key(name), id);
+            } else {
+                missing.add(name);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Map<String, Integer> found = matchRequested(missing, ingredientRepository.findByNameIn(missing)); // One query for all cache misses
+            idsByName.putAll(found);
+            resolved.putAll(found);
+        }
+
+        return resolved;
+    }
+
+    /**
+     * Method to resolve the IDs of the ingredients of a recipe, creating the ones that do not exist yet.
+     * New ingredients are inserted in one batch with INSERT IGNORE, so a concurrent transaction creating the same ingredient
+     * does not violate the unique constraint. The new IDs are then read with a locking read, which sees the latest committed rows.
+     * Has to be called inside a transaction.
+     * @param ingredientDTOs The ingredients of the recipe.
+     * @return The ingredient ID per lower-cased requested name.
+     * @throws IllegalStateException If a name matches no row after the insert.
+     */
+    public Map<String, Integer> resolveOrCreate(List<RecipeIngredientDTO> ingredientDTOs) {
+        Map<String, RecipeIngredientDTO> byName = new LinkedHashMap<>();
+        for (RecipeIngredientDTO ingredientDTO : ingredientDTOs) {
+            byName.putIfAbsent(key(ingredientDTO.getName()), ingredientDTO); // The first occurrence defines the standard unit
+        }
+
+        Map<String, Integer> resolved = resolveExisting(namesOf(byName.values()));
+
+        List<RecipeIngredientDTO> newIngredients = new ArrayList<>();
+        for (Map.Entry<String, RecipeIngredientDTO> entry : byName.entrySet()) {
+            if (!resolved.containsKey(entry.getKey())) {
+                newIngredients.add(entry.getValue());
+            }
+        }
+
+        if (newIngredients.isEmpty()) {
+            return resolved;
+        }
+
+        newIngredients.sort(Comparator.comparing(ingredientDTO -> key(ingredientDTO.getName()))); // Same lock order in every transaction, so concurrent inserts do not deadlock
+
+        jdbcTemplate.batchUpdate(INSERT_IGNORE_INGREDIENT, newIngredients, newIngredients.size(), (statement, ingredientDTO) -> {
+            statement.setString(1, ingredientDTO.getName());
+            statement.setString(2, ingredientDTO.getUnit());
+        });
+
+        List<String> newNames = namesOf(newIngredients);
+        Map<String, Integer> created = matchRequested(newNames, ingredientRepository.lockByNameIn(newNames));
+        for (String name : newNames) {
+            if (!created.containsKey(key(name))) {
+                throw new IllegalStateException("Could not resolve ingredient " + name);
+            }
+        }
+        resolved.putAll(created);
+
+        cacheAfterCommit(created); // The rows only exist for others once the transaction has committed
+
+        return resolved;
+    }
+
+    /**
+     * Method to build the cache key of an ingredient name.
+     * @param name The name of the ingredient.
+     * @return The lower-cased name.
+     */
+    public static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Method to map the rows returned for a name lookup back to the requested names.
+     * A row with the same lower-cased name wins, otherwise a row that equals the name when accents, case
+     * and trailing spaces are ignored, as the database collation does.
+     * @param names The requested names.
+     * @param ingredients The rows returned for the names.
+     * @return The ingredient ID per lower-cased requested name.
+     */
+    private static Map<String, Integer> matchRequested(Collection<String> names, Iterable<Ingredient> ingredients) {
+        Map<String, Integer> byKey = new HashMap<>();
+        Map<String, Integer> byFolded = new HashMap<>();
+        for (Ingredient ingredient : ingredients) {
+            byKey.put(key(ingredient.getName()), ingredient.getId());
+            byFolded.putIfAbsent(fold(ingredient.getName()), ingredient.getId());
+        }
+
+        Map<String, Integer> matched = new HashMap<>();
+        for (String name : names) {
+            Integer id = byKey.get(key(name));
+            if (id == null) {
+                id = byFolded.get(fold(name));
+            }
+            if (id != null) {
+                matched.put(key(name), id);
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * Method to fold a name the way the case and accent insensitive, pad space collation compares it.
+     * @param name The name of the ingredient.
+     * @return The name without accents and trailing spaces, lower-cased.
+     */
+    private static String fold(String name) {
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT).stripTrailing(); // Drop the combining accent marks
+    }
+
+    /**
+     * Method to add created ingredients to the cache once the current transaction has committed.
+     * @param created The ingredient ID per lower-cased name.
+     */
+    private void cacheAfterCommit(Map<String, Integer> created) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            idsByName.putAll(created);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                idsByName.putAll(created);
+            }
+        });
+    }
+
+    private static List<String> namesOf(Collection<RecipeIngredientDTO> ingredientDTOs) {
+        List<String> names = new ArrayList<>(ingredientDTOs.size());
+        for (RecipeIngredientDTO ingredientDTO : ingredientDTOs) {
+            names.add(ingredientDTO.getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,208 @@
+package com.bee.cookwithfriends.service;
+
+import com.bee.cookwithfriends.dto.recipe.RecipeSmallDTO;
+import com.bee.cookwithfriends.entity.Recipe;
+import com.bee.cookwithfriends.repositories.RecipeRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Ranks the rated recipes by their Bayesian average: (priorWeight * priorMean + sum) / (priorWeight + count).
+ * Recipes with few votes are pulled towards the mean of all votes, so a single 10 does not top the board.
+ * The ranking is updated incrementally with every flushed rating, the top entries are published as an immutable snapshot.
+ */
+@Service
+public class LeaderboardService {
+    private final RecipeRepository recipeRepository;
+    private final double priorWeight;
+    private final int size;
+
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> ranking = new TreeSet<>(
+            Comparator.comparingDouble((Entry entry) -> entry.score).reversed().thenComparingInt(entry -> entry.recipeId));
+    private long totalSum = 0;
+    private long totalCount = 0;
+    private double priorMean = 0;
+    private boolean changed = false;
+
+    private final Object publishLock = new Object();
+    //Details of the recipes in the snapshot, titles and descriptions do not change
+    private final Map<Integer, RecipeSmallDTO> details = new HashMap<>();
+    private volatile List<RecipeSmallDTO> snapshot = List.of();
+
+    /**
+     * Constructor for LeaderboardService.
+     * @param recipeRepository The repository for handling recipe data.
+     * @param priorWeight The number of mean votes every recipe starts with.
+     * @param size The number of recipes kept on the leaderboard.
+     */
+    public LeaderboardService(
+            RecipeRepository recipeRepository,
+            @Value("${recipe.leaderboard.prior-weight:10}") double priorWeight,
+            @Value("${recipe.leaderboard.size:1000}") int size
+    ) {
+        this.recipeRepository = recipeRepository;
+        this.priorWeight = priorWeight;
+        this.size = size;
+    }
+
+    /**
+     * Method to load the ratings of all rated recipes once the service is created.
+     */
+    @PostConstruct
+    public void loadRatings() {
+        List<Object[]> rows = recipeRepository.findAllRatingSumsAndCounts();
+
+        synchronized (this) {
+            for (Object[] row : rows) {
+                Entry entry = new Entry((Integer) row[0]);
+                entry.sum = ((Number) row[1]).longValue();
+                entry.count = ((Number) row[2]).longValue();
+                entries.put(entry.recipeId, entry);
+                totalSum += entry.sum;
+                totalCount += entry.count;
+            }
+            rescore();
+        }
+
+        publish();
+    }
+
+    /**
+     * Method to add ratings that have been written to the database.
+     * @param recipeId The ID of the recipe.
+     * @param sum The sum of the new ratings.
+     * @param count The number of new ratings.
+     */
+    public synchronized void addRatings(int recipeId, long sum, long count) {
+        Entry entry = entries.computeIfAbsent(recipeId, Entry::new);
+
+        ranking.remove(entry); // Remove with the old score before it changes
+        entry.sum += sum;
+        entry.count += count;
+        entry.score = score(entry);
+        ranking.add(entry);
+
+        totalSum += sum;
+        totalCount += count;
+        changed = true;
+    }
+
+    /**
+     * Method to get a page of the leaderboard. Served from the published snapshot without touching the database.
+     * @param page The number of the page, starting at 0.
+     * @param pageSize The number of recipes per page.
+     * @return The recipes of the page, best first.
+     */
+    public List<RecipeSmallDTO> getPage(int page, int pageSize) {
+        List<RecipeSmallDTO> current = snapshot;
+        long from = (long) page * pageSize; // Computed as long, so a large page cannot overflow into a negative index
+
+        if (page < 0 || pageSize <= 0 || from >= current.size()) {
+            return List.of();
+        }
+
+        return current.subList((int) from, (int) Math.min(from + pageSize, current.size()));
+    }
+
+    /**
+     * Method to publish the current top recipes as a new snapshot if the ranking has changed.
+     */
+    @Scheduled(fixedDelayString = "${recipe.leaderboard.publish-interval:1000}")
+    public void refresh() {
+        synchronized (this) {
+            if (!changed) {
+                return;
+            }
+        }
+        publish();
+    }
+
+    /**
+     * Method to recompute the mean of all votes and rescore every recipe with it.
+     * Between these runs new ratings are scored against the previous mean, which moves only slowly.
+     */
+    @Scheduled(fixedDelayString = "${recipe.leaderboard.rescore-interval:600000}")
+    public void rescoreAll() {
+        synchronized (this) {
+            rescore();
+        }
+        publish();
+    }
+
+    private void rescore() {
+        priorMean = totalCount == 0 ? 0 : (double) totalSum / totalCount;
+
+        ranking.clear();
+        for (Entry entry : entries.values()) {
+            entry.score = score(entry);
+            ranking.add(entry);
+        }
+        changed = true;
+    }
+
+    private void publish() {
+        synchronized (publishLock) {
+            publishSnapshot();
+        }
+    }
+
+    private void publishSnapshot() {
+        List<Entry> top = new ArrayList<>(size);
+        synchronized (this) {
+            Iterator<Entry> iterator = ranking.iterator();
+            while (iterator.hasNext() && top.size() < size) {
+                Entry entry = iterator.next();
+                Entry copy = new Entry(entry.recipeId);
+                copy.sum = entry.sum;
+                copy.count = entry.count;
+                top.add(copy);
+            }
+            changed = false;
+        }
+
+        List<Integer> missing = new ArrayList<>();
+        for (Entry entry : top) {
+            if (!details.containsKey(entry.recipeId)) {
+                missing.add(entry.recipeId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Recipe recipe : recipeRepository.findAllById(missing)) { // One query for the recipes new on the board
+                details.put(recipe.getId(), new RecipeSmallDTO(recipe.getId(), recipe.getTitle(), recipe.getDescription(), recipe.getCookingTime(), 0));
+            }
+        }
+
+        List<RecipeSmallDTO> published = new ArrayList<>(top.size());
+        Set<Integer> onBoard = new HashSet<>();
+        for (Entry entry : top) {
+            RecipeSmallDTO recipe = details.get(entry.recipeId);
+            if (recipe != null) {
+                published.add(new RecipeSmallDTO(recipe.getId(), recipe.getTitle(), recipe.getDescription(), recipe.getCookingTime(), (int) (entry.sum / entry.count)));
+                onBoard.add(entry.recipeId);
+            }
+        }
+        details.keySet().retainAll(onBoard); // Forget recipes that dropped off the board
+
+        snapshot = Collections.unmodifiableList(published);
+    }
+
+    private double score(Entry entry) {
+        return (priorWeight * priorMean + entry.sum) / (priorWeight + entry.count);
+    }
+
+    private static final class Entry {
+        private final int recipeId;
+        private long sum;
+        private long count;
+        private double score;
+
+        private Entry(int recipeId) {
+            this.recipeId = recipeId;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.bee.cookwithfriends.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes friendship events to the connected clients over server-sent events.
+ * Idle connections hold no thread, every connection has a bounded outbound queue that is drained by a small shared pool,
+ * and a connection whose queue overflows is closed, so a slow client cannot hold back the others.
+ */
+@Service
+public class NotificationService {
+    public static final String FRIEND_REQUEST_EVENT = "friendRequest";
+    public static final String FRIENDSHIP_EVENT = "friendship";
+
+    private final long timeoutMillis;
+    private final int queueCapacity;
+    private final ExecutorService senders;
+
+    //Open connections by user ID, a user may be connected from several devices
+    private final Map<Integer, Set<Connection>> connections = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for NotificationService.
+     * @param timeoutMillis The time in milliseconds after which a connection is closed and has to be reopened by the client.
+     * @param queueCapacity The maximum number of unsent events of one connection.
+     * @param senderThreads The number of threads writing events to the connections.
+     */
+    public NotificationService(
+            @Value("${notifications.timeout:1800000}") long timeoutMillis,
+            @Value("${notifications.queue-capacity:32}") int queueCapacity,
+            @Value("${notifications.sender-threads:4}") int senderThreads
+    ) {
+        this.timeoutMillis = timeoutMillis;
+        this.queueCapacity = queueCapacity;
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "notification-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Method to open an event stream for a user.
+     * @param userId The ID of the user.
+     * @return The emitter of the new connection.
+     */
+    public SseEmitter subscribe(int userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Connection connection = new Connection(emitter, new ArrayBlockingQueue<>(queueCapacity));
+
+        connections.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(connection);
+
+        Runnable remove = () -> connections.computeIfPresent(userId, (id, userConnections) -> {
+            userConnections.remove(connection);
+            return userConnections.isEmpty() ? null : userConnections;
+        });
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+
+        return emitter;
+    }
+
+    /**
+     * Method to push an event to all connections of a user.
+     * @param userId The ID of the user.
+     * @param eventName The name of the event.
+     * @param data The payload of the event, serialized as JSON.
+     */
+    public void publish(int userId, String eventName, Object data) {
+        Set<Connection> userConnections = connections.get(userId);
+        if (userConnections == null) {
+            return; // User is not connected
+        }
+
+        for (Connection connection : userConnections) {
+            enqueue(connection, SseEmitter.event().name(eventName).data(data));
+        }
+    }
+
+    /**
+     * Method to send a heartbeat to idle connections, so that proxies keep them open and dead ones are detected.
+     */
+    @Scheduled(fixedRateString = "${notifications.heartbeat:25000}")
+    public void heartbeat() {
+        for (Set<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                if (connection.queue.isEmpty()) {
+                    enqueue(connection, SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        senders.shutdownNow();
+        for (Set<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                connection.emitter.complete();
+            }
+        }
+    }
+
+    /**
+     * Method to queue an event for a connection and schedule the draining of its queue.
+     * @param connection The connection.
+     * @param event The event.
+     */
+    private void enqueue(Connection connection, SseEmitter.SseEventBuilder event) {
+        if (!connection.queue.offer(event)) {
+            connection.emitter.complete(); // Client does not keep up, it reconnects and reloads its lists
+            return;
+        }
+
+        if (connection.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(connection));
+        }
+    }
+
+    /**
+     * Method to write the queued events of a connection. Only one drain runs per connection at a time.
+     * @param connection The connection.
+     */
+    private void drain(Connection connection) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while ((event = connection.queue.poll()) != null) {
+                connection.emitter.send(event);
+            }
+        } catch (IOException | IllegalStateException exception) {
+            connection.queue.clear(); // Connection is gone, it is removed by its error callback
+            connection.emitter.completeWithError(exception);
+        } finally {
+            connection.draining.set(false);
+        }
+
+        if (!connection.queue.isEmpty() && connection.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(connection)); // Event queued after the last poll
+        }
+    }
+
+    private static final class Connection {
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Connection(SseEmitter emitter, BlockingQueue<SseEmitter.SseEventBuilder> queue) {
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+    }
+}
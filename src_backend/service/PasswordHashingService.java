@@ -0,0 +1,142 @@
+package com.bee.cookwithfriends.service;
+
+import com.bee.cookwithfriends.exceptions.LoginThrottledException;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded executor for the BCrypt-bound password work of logins and signups.
+ * Keeps the hashing off the servlet threads and rejects work once the queue is full, instead of letting a burst of logins pin every core.
+ */
+@Service
+public class PasswordHashingService {
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * Constructor for PasswordHashingService.
+     * @param threads The number of hashing threads, 0 for half of the available processors.
+     * @param queueCapacity The maximum number of waiting tasks before new ones are rejected.
+     * @param timeoutMillis The maximum time in milliseconds a request waits for its task.
+     */
+    public PasswordHashingService(
+            @Value("${security.password.threads:0}") int threads,
+            @Value("${security.password.queue-capacity:64}") int queueCapacity,
+            @Value("${security.password.timeout:5000}") long timeoutMillis
+    ) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        this.executor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy() // Fast rejection instead of blocking the caller
+        );
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Method to run password work on the hashing executor and wait for its result.
+     * @param task The task that hashes or verifies a password.
+     * @return The result of the task.
+     * @throws LoginThrottledException If the queue is full or the task did not finish in time.
+     */
+    public <T> T execute(Callable<T> task) {
+        Future<T> future;
+
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return task.call();
+                } finally {
+                    totalNanos.add(System.nanoTime() - start);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            rejected.increment();
+            throw new LoginThrottledException("Too many login attempts, please try again later");
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException exception) {
+            future.cancel(true);
+            timedOut.increment();
+            throw new LoginThrottledException("Too many login attempts, please try again later");
+        } catch (InterruptedException exception) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new LoginThrottledException("Login was interrupted");
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException; // E.g. BadCredentialsException, handled like before
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Method to get the statistics of the hashing executor.
+     * @return A snapshot of the executor statistics.
+     */
+    public HashingStats stats() {
+        long done = completed.sum();
+        return new HashingStats(
+                executor.getActiveCount(),
+                executor.getQueue().size(),
+                done,
+                rejected.sum(),
+                timedOut.sum(),
+                done == 0 ? 0 : totalNanos.sum() / done / 1_000_000.0
+        );
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Snapshot of the executor statistics.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class HashingStats {
+        private final int active;
+        private final int queued;
+        private final long completed;
+        private final long rejected;
+        private final long timedOut;
+        private final double averageMillis;
+    }
+}
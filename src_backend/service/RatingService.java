@@ -0,0 +1,482 @@
+package com.bee.cookwithfriends.service;
+
+import com.bee.cookwithfriends.repositories.RecipeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collects ratings in striped in-memory counters and writes them to the database periodically with atomic increments.
+ * With the rating log enabled, every vote is also appended to one of several log stripes that are replayed on restart.
+ * Every flush commits its sequence number together with the increments, so the logs of a committed flush are never replayed.
+ * The sequence is kept per node, as the logs are local files of the instance that wrote them.
+ */
+@Service
+public class RatingService {
+    private static final Logger logger = LoggerFactory.getLogger(RatingService.class);
+
+    private static final String UPDATE_RATING = "UPDATE recipe SET rating = FLOOR((sum_rating + ?) / (count_rating + ?)), " +
+            "sum_rating = sum_rating + ?, count_rating = count_rating + ? WHERE id = ?";
+    private static final String INSERT_FLUSH_SEQUENCE = "INSERT IGNORE INTO rating_flush (node_id, sequence) VALUES (?, 0)";
+    private static final String SELECT_FLUSH_SEQUENCE = "SELECT sequence FROM rating_flush WHERE node_id = ?";
+    private static final String UPDATE_FLUSH_SEQUENCE = "UPDATE rating_flush SET sequence = ? WHERE node_id = ?";
+
+    //Rotated logs are named <log>.r<rotation>.flushing.<sequence of the flush they belong to>
+    private static final String FLUSHING = ".flushing.";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RecipeRepository recipeRepository;
+    private final RecipeDetailCache detailCache;
+    private final LeaderboardService leaderboardService;
+    private final boolean logEnabled;
+    private final Path logPath;
+    private final String nodeId;
+    private final LogStripe[] stripes;
+
+    //Recipe ID -> pending votes, packed as (sum of ratings << 32) | number of votes, so one add records a whole vote
+    private final Map<Integer, LongAdder> pending = new ConcurrentHashMap<>();
+
+    //Recipe ID -> {sum, count} of the ratings written to the database, replaced on every flush
+    private final Map<Integer, long[]> stored = new ConcurrentHashMap<>();
+
+    private final Object flushLock = new Object();
+    private long flushSequence; // Sequence of the last committed flush, guarded by flushLock
+    private long rotation; // Makes the names of rotated logs unique, guarded by flushLock
+    private boolean closed; // Guarded by flushLock
+
+    /**
+     * Constructor for RatingService.
+     * @param jdbcTemplate The JdbcTemplate for the batched updates.
+     * @param transactionManager The transaction manager for the flush transactions.
+     * @param recipeRepository The repository for handling recipe data.
+     * @param detailCache The cache of assembled recipe details.
+     * @param leaderboardService The leaderboard of the best rated recipes.
+     * @param logEnabled Whether votes are appended to the local rating log.
+     * @param logPath The path of the local rating log.
+     * @param logStripes The number of log files voters append to in parallel.
+     * @param nodeId The stable ID of this instance for its flush sequence, by default the host name and the log path.
+     * @throws IOException If the host name cannot be resolved.
+     */
+    public RatingService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            RecipeRepository recipeRepository,
+            RecipeDetailCache detailCache,
+            LeaderboardService leaderboardService,
+            @Value("${recipe.rating.log.enabled:false}") boolean logEnabled,
+            @Value("${recipe.rating.log.path:rating.log}") String logPath,
+            @Value("${recipe.rating.log.stripes:8}") int logStripes,
+            @Value("${recipe.rating.log.node-id:}") String nodeId
+    ) throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.recipeRepository = recipeRepository;
+        this.detailCache = detailCache;
+        this.leaderboardService = leaderboardService;
+        this.logEnabled = logEnabled;
+        this.logPath = Paths.get(System.getProperty("user.dir"), logPath);
+        this.nodeId = nodeId.isBlank() ? InetAddress.getLocalHost().getHostName() + ":" + this.logPath : nodeId; // The logs of one node are replayed against its own sequence
+        this.stripes = new LogStripe[logEnabled ? Math.max(1, logStripes) : 0];
+    }
+
+    /**
+     * Method to load the stored ratings and replay the votes of the rating log that were not written before the last shutdown.
+     * @throws IOException If the log cannot be read or written.
+     */
+    @PostConstruct
+    public void load() throws IOException {
+        for (Object[] row : recipeRepository.findAllRatingSumsAndCounts()) {
+            stored.put((Integer) row[0], new long[]{((Number) row[1]).longValue(), ((Number) row[2]).longValue()});
+        }
+
+        if (logEnabled) {
+            synchronized (flushLock) {
+                replayLog();
+            }
+        }
+    }
+
+    /**
+     * Method to record a vote for a recipe. Only the first vote for an unrated recipe reads from the database.
+     * @param recipeId The ID of the recipe.
+     * @param rating The rating between 0 and 10.
+     * @return The rating of the recipe including the votes not yet written to the database.
+     * @throws ResponseStatusException If the recipe is not found.
+     */
+    public int rate(int recipeId, int rating) {
+        long[] written = stored.get(recipeId);
+        if (written == null) {
+            if (!recipeRepository.existsById(recipeId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Recipe not found");
+            }
+            written = new long[2];
+            stored.putIfAbsent(recipeId, written); // Unrated so far, a concurrent flush merges its votes on top
+        }
+        long sum = written[0];
+        long count = written[1];
+
+        if (rating > 10 || rating < 0) {
+            return count == 0 ? 0 : (int) (sum / count); // Ratings outside of the valid range are ignored
+        }
+
+        LongAdder adder;
+
+        if (logEnabled) {
+            LogStripe stripe = stripes[ThreadLocalRandom.current().nextInt(stripes.length)]; // Voters spread over the stripes instead of sharing one lock
+            stripe.lock.lock();
+            try { // The vote has to be in the log before a flush can drain it
+                stripe.append(recipeId, rating);
+                adder = addPending(recipeId, pack(rating, 1));
+            } finally {
+                stripe.lock.unlock();
+            }
+        } else {
+            adder = addPending(recipeId, pack(rating, 1));
+        }
+
+        long pendingVotes = adder.sum();
+        sum += unpackSum(pendingVotes);
+        count += unpackCount(pendingVotes);
+
+        return (int) (sum / count);
+    }
+
+    /**
+     * Method to write the pending votes to the database with atomic increments in one transaction.
+     * Votes that could not be written stay pending for the next flush.
+     */
+    @Scheduled(fixedDelayString = "${recipe.rating.flush-interval:1000}")
+    public void flush() {
+        synchronized (flushLock) { // The scheduled flush and the flush on shutdown never overlap
+            if (!closed) {
+                flushPending();
+            }
+        }
+    }
+
+    /**
+     * Method to write all pending votes before the application stops.
+     * @throws IOException If the log cannot be closed.
+     */
+    @PreDestroy
+    public void shutdown() throws IOException {
+        synchronized (flushLock) {
+            if (closed) {
+                return;
+            }
+            flushPending();
+            closed = true;
+
+            for (LogStripe stripe : stripes) {
+                stripe.lock.lock();
+                try {
+                    stripe.close();
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        }
+    }
+
+    private void flushPending() {
+        Map<Integer, Long> drained = new HashMap<>();
+        long sequence = flushSequence + 1; // Reused until a flush commits, so all logs of the pending votes carry it
+
+        if (logEnabled) {
+            if (!rotateLogs(sequence, drained)) {
+                return;
+            }
+        } else {
+            drain(drained);
+        }
+
+        if (drained.isEmpty()) {
+            deleteFlushedLogs(sequence); // Only empty stripes were rotated
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(drained.size());
+        for (Map.Entry<Integer, Long> entry : drained.entrySet()) {
+            long sum = unpackSum(entry.getValue());
+            long count = unpackCount(entry.getValue());
+            rows.add(new Object[]{sum, count, sum, count, entry.getKey()});
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> { // All rows or none, so restoring the votes never counts one twice
+                jdbcTemplate.batchUpdate(UPDATE_RATING, rows);
+                if (logEnabled) {
+                    jdbcTemplate.update(UPDATE_FLUSH_SEQUENCE, sequence, nodeId);
+                }
+            });
+        } catch (DataAccessException | TransactionException exception) {
+            logger.error("Could not write {} pending ratings, keeping them for the next flush", drained.size(), exception);
+            restore(drained);
+            return;
+        }
+
+        flushSequence = sequence;
+        deleteFlushedLogs(sequence);
+
+        for (Map.Entry<Integer, Long> entry : drained.entrySet()) {
+            long sum = unpackSum(entry.getValue());
+            long count = unpackCount(entry.getValue());
+            stored.merge(entry.getKey(), new long[]{sum, count}, (old, added) -> new long[]{old[0] + added[0], old[1] + added[1]});
+            detailCache.invalidate(entry.getKey()); // The cached details contain the old rating
+            leaderboardService.addRatings(entry.getKey(), sum, count);
+            pending.computeIfPresent(entry.getKey(), (id, adder) -> adder.sum() == 0 ? null : adder); // Written, no counter kept for recipes without new votes
+        }
+    }
+
+    /**
+     * Method to replay the logs that were not committed. Logs of a flush whose sequence was committed are dropped,
+     * the others are renamed into the next flush, so every vote stays in exactly one file even if this is interrupted.
+     * @throws IOException If a log cannot be read or renamed.
+     */
+    private void replayLog() throws IOException {
+        jdbcTemplate.update(INSERT_FLUSH_SEQUENCE, nodeId);
+        Long committedSequence = jdbcTemplate.queryForObject(SELECT_FLUSH_SEQUENCE, Long.class, nodeId);
+        flushSequence = committedSequence == null ? 0 : committedSequence;
+
+        List<Path> logs = listLogs();
+        for (Path file : logs) {
+            String name = file.getFileName().toString();
+            int flushing = name.lastIndexOf(FLUSHING);
+            int label = name.lastIndexOf(".r", flushing);
+            if (flushing >= 0 && label >= 0) {
+                rotation = Math.max(rotation, Long.parseLong(name.substring(label + 2, flushing)) + 1);
+            }
+        }
+
+        Map<Integer, long[]> votes = new HashMap<>();
+        for (Path file : logs) {
+            String name = file.getFileName().toString();
+            int flushing = name.lastIndexOf(FLUSHING);
+
+            if (flushing >= 0 && Long.parseLong(name.substring(flushing + FLUSHING.length())) <= flushSequence) {
+                Files.delete(file); // Committed before the last shutdown, replaying it would count the votes twice
+                continue;
+            }
+
+            readLog(file, votes);
+            if (flushing < 0) {
+                Files.move(file, rotatedPath(flushSequence + 1)); // Stripe of the last run, now part of the next flush
+            }
+        }
+
+        for (Map.Entry<Integer, long[]> entry : votes.entrySet()) {
+            addPending(entry.getKey(), pack(entry.getValue()[0], entry.getValue()[1]));
+        }
+
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new LogStripe(Paths.get(logPath + "." + i));
+        }
+
+        if (!votes.isEmpty()) {
+            logger.info("Replayed pending ratings of {} recipes from the rating log", votes.size());
+        }
+    }
+
+    /**
+     * Method to rotate every log stripe and drain the pending votes while all stripes are locked,
+     * so the rotated logs hold exactly the drained votes and the new ones hold the rest.
+     * @param sequence The sequence of the flush the rotated logs belong to.
+     * @param drained The map the drained votes are added to.
+     * @return True if the logs were rotated and the votes drained, false otherwise.
+     */
+    private boolean rotateLogs(long sequence, Map<Integer, Long> drained) {
+        for (LogStripe stripe : stripes) {
+            stripe.lock.lock();
+        }
+        try {
+            for (LogStripe stripe : stripes) {
+                stripe.rotate(rotatedPath(sequence));
+            }
+            drain(drained);
+            return true;
+        } catch (IOException exception) {
+            logger.error("Could not rotate the rating log, skipping this flush", exception); // Rotated stripes keep the sequence and are retried
+            return false;
+        } finally {
+            for (LogStripe stripe : stripes) {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Method to add votes to the pending counter of a recipe.
+     * A counter removed by a flush in between is not drained anymore, so the votes are moved to the new one.
+     * @param recipeId The ID of the recipe.
+     * @param votes The packed votes.
+     * @return The counter holding the votes.
+     */
+    private LongAdder addPending(int recipeId, long votes) {
+        while (true) {
+            LongAdder adder = pending.computeIfAbsent(recipeId, id -> new LongAdder());
+            adder.add(votes);
+            if (pending.get(recipeId) == adder) {
+                return adder; // Still in the map, a later removal sees the votes and keeps the counter
+            }
+            adder.add(-votes);
+        }
+    }
+
+    private void drain(Map<Integer, Long> drained) {
+        for (Map.Entry<Integer, LongAdder> entry : pending.entrySet()) {
+            long votes = entry.getValue().sumThenReset();
+            if (votes != 0) {
+                drained.put(entry.getKey(), votes);
+            }
+        }
+    }
+
+    private void restore(Map<Integer, Long> drained) {
+        for (Map.Entry<Integer, Long> entry : drained.entrySet()) {
+            addPending(entry.getKey(), entry.getValue()); // The rotated logs stay until the retry commits
+        }
+    }
+
+    private void deleteFlushedLogs(long sequence) {
+        if (!logEnabled) {
+            return;
+        }
+        try {
+            for (Path file : listLogs()) {
+                if (file.getFileName().toString().endsWith(FLUSHING + sequence)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException exception) {
+            logger.warn("Could not delete the flushed rating log", exception); // Dropped on the next start, as the sequence is committed
+        }
+    }
+
+    private Path rotatedPath(long sequence) {
+        return Paths.get(logPath + ".r" + rotation++ + FLUSHING + sequence);
+    }
+
+    /**
+     * Method to list the log stripes and rotated logs, including the single log of earlier versions.
+     * @return The paths of the logs.
+     * @throws IOException If the directory cannot be read.
+     */
+    private List<Path> listLogs() throws IOException {
+        String baseName = logPath.getFileName().toString();
+        List<Path> logs = new ArrayList<>();
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(logPath.getParent(), baseName + "*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if ((name.equals(baseName) || name.startsWith(baseName + ".")) && !name.endsWith(".tmp")) {
+                    logs.add(file);
+                }
+            }
+        }
+        return logs;
+    }
+
+    private static void readLog(Path path, Map<Integer, long[]> votes) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int recipeId;
+                long sum;
+                long count;
+                try {
+                    recipeId = in.readInt();
+                    sum = in.readInt();
+                    count = in.readInt();
+                } catch (EOFException exception) {
+                    return; // End of the log, a torn last record is dropped
+                }
+                long[] total = votes.computeIfAbsent(recipeId, id -> new long[2]);
+                total[0] += sum;
+                total[1] += count;
+            }
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, int recipeId, long sum, long count) throws IOException {
+        out.writeInt(recipeId);
+        out.writeInt((int) sum);
+        out.writeInt((int) count);
+    }
+
+    private static long pack(long sum, long count) {
+        return (sum << 32) + count;
+    }
+
+    private static long unpackSum(long votes) {
+        return votes >>> 32;
+    }
+
+    private static long unpackCount(long votes) {
+        return votes & 0xFFFFFFFFL;
+    }
+
+    //One log file with its own lock, all fields guarded by the lock
+    private static final class LogStripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Path path;
+        private DataOutputStream out;
+
+        private LogStripe(Path path) throws IOException {
+            this.path = path;
+            this.out = open();
+        }
+
+        private void append(int recipeId, int rating) {
+            try {
+                writeRecord(out, recipeId, rating, 1);
+                out.flush(); // Handed to the OS per vote, voters on other stripes are not blocked by it
+            } catch (IOException exception) {
+                throw new UncheckedIOException("Could not write the rating log", exception);
+            }
+        }
+
+        private void rotate(Path target) throws IOException {
+            out.close();
+            try {
+                Files.move(path, target);
+            } finally {
+                out = open();
+            }
+        }
+
+        private void close() throws IOException {
+            out.close();
+        }
+
+        private DataOutputStream open() throws IOException {
+            return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile(), true)));
+        }
+    }
+}
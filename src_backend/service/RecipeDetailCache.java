@@ -0,0 +1,206 @@
+package com.bee.cookwithfriends.service;
+
+import com.bee.cookwithfriends.dto.recipe.InstructionDTO;
+import com.bee.cookwithfriends.dto.recipe.RecipeDTO;
+import com.bee.cookwithfriends.dto.recipe.RecipeIngredientDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-, TTL- and memory-bounded LRU cache of assembled RecipeDTOs keyed by recipe ID.
+ */
+@Service
+public class RecipeDetailCache {
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long maxBytes;
+
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Access order for LRU eviction
+    private long currentBytes = 0;
+
+    //Incremented on every invalidation, serves as a clock to order loads and invalidations
+    private final AtomicLong generation = new AtomicLong();
+
+    //Recipe ID -> generation of its last invalidation, so that only loads of that recipe started before it are discarded.
+    //Oldest first, the eldest entries are pruned and raise the floor instead. Guarded by the lock on the entries
+    private final LinkedHashMap<Integer, Long> invalidations = new LinkedHashMap<>();
+    private long invalidationFloor = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor for RecipeDetailCache.
+     * @param maxEntries The maximum number of cached recipes.
+     * @param ttlMillis The time in milliseconds after which a cached recipe expires.
+     * @param maxBytes The estimated memory budget of the cache in bytes.
+     */
+    public RecipeDetailCache(
+            @Value("${recipe.cache.max-entries:10000}") int maxEntries,
+            @Value("${recipe.cache.ttl:600000}") long ttlMillis,
+            @Value("${recipe.cache.max-bytes:67108864}") long maxBytes
+    ) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Method to get a cached recipe.
+     * @param recipeId The ID of the recipe.
+     * @return The cached RecipeDTO, or null if it is not cached or expired.
+     */
+    public RecipeDTO get(int recipeId) {
+        synchronized (entries) {
+            Entry entry = entries.get(recipeId);
+
+            if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                hits.increment();
+                return entry.recipe;
+            }
+
+            if (entry != null) {
+                remove(recipeId); // Drop the expired entry
+                evictions.increment();
+            }
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Method to get the current generation, to be passed to put after loading a recipe.
+     * @return The current generation of the cache.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Method to store a loaded recipe.
+     * The recipe is not stored if it was invalidated after the load started.
+     * @param recipe The loaded RecipeDTO.
+     * @param loadGeneration The generation read before the recipe was loaded.
+     */
+    public void put(RecipeDTO recipe, long loadGeneration) {
+        long size = estimateSize(recipe);
+        if (size > maxBytes) {
+            return; // Recipe alone exceeds the budget
+        }
+
+        synchronized (entries) {
+            Long invalidated = invalidations.get(recipe.getId());
+            if ((invalidated != null && invalidated > loadGeneration) || invalidationFloor > loadGeneration) {
+                return; // Recipe may be stale
+            }
+
+            remove(recipe.getId());
+            entries.put(recipe.getId(), new Entry(recipe, size, System.currentTimeMillis() + ttlMillis));
+            currentBytes += size;
+
+            Iterator<Map.Entry<Integer, Entry>> iterator = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || currentBytes > maxBytes) && iterator.hasNext()) { // Evict least recently used entries
+                Entry eldest = iterator.next().getValue();
+                iterator.remove();
+                currentBytes -= eldest.size;
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Method to invalidate a cached recipe after it was changed.
+     * @param recipeId The ID of the recipe.
+     */
+    public void invalidate(int recipeId) {
+        synchronized (entries) {
+            invalidations.remove(recipeId); // Re-inserted at the end, as the newest invalidation
+            invalidations.put(recipeId, generation.incrementAndGet());
+            remove(recipeId);
+
+            if (invalidations.size() > maxEntries) {
+                Iterator<Map.Entry<Integer, Long>> eldest = invalidations.entrySet().iterator();
+                invalidationFloor = eldest.next().getValue(); // Loads older than the pruned invalidation are discarded for every recipe
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Method to get the statistics of the cache.
+     * @return A snapshot of the cache statistics.
+     */
+    public CacheStats stats() {
+        synchronized (entries) {
+            return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), entries.size(), currentBytes);
+        }
+    }
+
+    /**
+     * Method to remove an entry. The caller has to hold the lock on the entries.
+     * @param recipeId The ID of the recipe.
+     */
+    private void remove(int recipeId) {
+        Entry removed = entries.remove(recipeId);
+        if (removed != null) {
+            currentBytes -= removed.size;
+        }
+    }
+
+    /**
+     * Method to estimate the heap size of a RecipeDTO.
+     * @param recipe The RecipeDTO.
+     * @return The estimated size in bytes.
+     */
+    private static long estimateSize(RecipeDTO recipe) {
+        long size = 64 + stringSize(recipe.getTitle()) + stringSize(recipe.getDescription());
+
+        if (recipe.getInstructions() != null) {
+            for (InstructionDTO instruction : recipe.getInstructions()) {
+                size += 32 + stringSize(instruction.getInstruction());
+            }
+        }
+
+        if (recipe.getIngredients() != null) {
+            for (RecipeIngredientDTO ingredient : recipe.getIngredients()) {
+                size += 32 + stringSize(ingredient.getName()) + stringSize(ingredient.getUnit());
+            }
+        }
+
+        return size;
+    }
+
+    private static long stringSize(String value) {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+
+    @AllArgsConstructor
+    private static final class Entry {
+        private final RecipeDTO recipe;
+        private final long size;
+        private final long expiresAt;
+    }
+
+    /**
+     * Snapshot of the cache statistics.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class CacheStats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int size;
+        private final long estimatedBytes;
+    }
+}
@@ -0,0 +1,301 @@
+package com.bee.cookwithfriends.service;
+
+import com.bee.cookwithfriends.dto.recipe.*;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class RecipeImportService {
+    private static final Logger logger = LoggerFactory.getLogger(RecipeImportService.class);
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    //Column lengths of the target tables, checked per record so that one bad record does not fail its whole chunk
+    private static final int MAX_VARCHAR_LENGTH = 255;
+    private static final int MAX_DESCRIPTION_LENGTH = 1000;
+    private static final int MAX_INSTRUCTION_LENGTH = 1000;
+
+    private static final String INSERT_RECIPE = "INSERT INTO recipe (title, description, cooking_time, preparation_time, servings, rating, count_rating, sum_rating) VALUES (?, ?, ?, ?, ?, 0, 0, 0)";
+    private static final String INSERT_INSTRUCTION = "INSERT INTO instruction (instruction, step_number, recipe_id) VALUES (?, ?, ?)";
+    private static final String INSERT_RECIPE_INGREDIENT = "INSERT INTO recipe_ingredients (recipe_id, ingredient_id, unit, amount) VALUES (?, ?, ?, ?)";
+
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final IngredientService ingredientService;
+    private final RecipeSamplingService samplingService;
+    private final RecipeSearchService searchService;
+    private final IngredientIndexService ingredientIndexService;
+    private final int chunkSize;
+
+    /**
+     * Constructor for RecipeImportService.
+     * @param objectMapper The ObjectMapper for parsing the records.
+     * @param jdbcTemplate The JdbcTemplate for batched inserts.
+     * @param transactionManager The transaction manager for the chunk transactions.
+     * @param ingredientService The service for resolving ingredient names.
+     * @param samplingService The service for drawing random recipe IDs.
+     * @param searchService The full-text index over the recipes.
+     * @param ingredientIndexService The index from ingredients to recipes.
+     * @param chunkSize The number of recipes committed per transaction.
+     */
+    public RecipeImportService(
+            ObjectMapper objectMapper,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            IngredientService ingredientService,
+            RecipeSamplingService samplingService,
+            RecipeSearchService searchService,
+            IngredientIndexService ingredientIndexService,
+            @Value("${recipe.import.chunk-size:1000}") int chunkSize
+    ) {
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ingredientService = ingredientService;
+        this.samplingService = samplingService;
+        this.searchService = searchService;
+        this.ingredientIndexService = ingredientIndexService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Method to import recipes from a stream of newline-delimited JSON, one AddRecipeDTO per line.
+     * The stream is read line by line and committed in chunks, so the body is never held in memory as a whole.
+     * @param input The NDJSON stream.
+     * @return The result of the import with the errors of the failed records.
+     * @throws IOException If the stream cannot be read.
+     */
+    public ImportResultDTO importRecipes(InputStream input) throws IOException {
+        ImportResultDTO result = new ImportResultDTO(0, 0, 0, new ArrayList<>());
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<AddRecipeDTO> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkLines = new ArrayList<>(chunkSize);
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            result.setProcessed(result.getProcessed() + 1);
+
+            try {
+                AddRecipeDTO recipeDTO = objectMapper.readValue(line, AddRecipeDTO.class);
+                validate(recipeDTO);
+                chunk.add(recipeDTO);
+                chunkLines.add(lineNumber);
+            } catch (JsonProcessingException | IllegalArgumentException exception) {
+                addError(result, lineNumber, exception.getMessage());
+            }
+
+            if (chunk.size() >= chunkSize) {
+                commitChunk(chunk, chunkLines, result);
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            commitChunk(chunk, chunkLines, result);
+        }
+
+        logger.info("Recipe import finished: {} processed, {} imported, {} failed", result.getProcessed(), result.getImported(), result.getFailed());
+
+        return result;
+    }
+
+    /**
+     * Method to store a chunk of recipes in one transaction and clear it afterwards.
+     * @param chunk The parsed recipes.
+     * @param chunkLines The line number of each recipe.
+     * @param result The result to update.
+     */
+    private void commitChunk(List<AddRecipeDTO> chunk, List<Integer> chunkLines, ImportResultDTO result) {
+        try {
+            ChunkResult stored = transactionTemplate.execute(status -> insertChunk(chunk));
+
+            for (int i = 0; i < chunk.size(); i++) { // Update the in-memory indexes only after the commit
+                AddRecipeDTO recipeDTO = chunk.get(i);
+                int recipeId = stored.recipeIds[i];
+
+                samplingService.addRecipe(recipeId);
+                searchService.addRecipe(recipeId, recipeDTO.getTitle(), recipeDTO.getDescription());
+                ingredientIndexService.addRecipe(recipeId, stored.ingredientIds.get(i));
+            }
+
+            result.setImported(result.getImported() + chunk.size());
+            logger.info("Recipe import progress: {} processed, {} imported, {} failed", result.getProcessed(), result.getImported(), result.getFailed());
+        } catch (RuntimeException exception) {
+            logger.warn("Recipe import chunk starting at line {} failed", chunkLines.get(0), exception);
+
+            for (Integer line : chunkLines) {
+                addError(result, line, "Chunk failed: " + exception.getMessage());
+            }
+        }
+
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    /**
+     * Method to insert a chunk of recipes with their instructions and ingredients using batched statements.
+     * Has to be called inside a transaction.
+     * @param chunk The parsed recipes.
+     * @return The generated recipe IDs and the ingredient IDs of every recipe.
+     */
+    private ChunkResult insertChunk(List<AddRecipeDTO> chunk) {
+        List<RecipeIngredientDTO> allIngredients = new ArrayList<>();
+        for (AddRecipeDTO recipeDTO : chunk) {
+            allIngredients.addAll(recipeDTO.getRecipeIngredients());
+        }
+        Map<String, Integer> ingredientIdsByName = ingredientService.resolveOrCreate(allIngredients); // One batch for all new ingredients of the chunk
+
+        int[] recipeIds = insertRecipes(chunk);
+
+        List<Object[]> instructionRows = new ArrayList<>();
+        List<Object[]> ingredientRows = new ArrayList<>();
+        List<List<Integer>> ingredientIds = new ArrayList<>(chunk.size());
+
+        for (int i = 0; i < chunk.size(); i++) {
+            AddRecipeDTO recipeDTO = chunk.get(i);
+
+            for (InstructionDTO instruction : recipeDTO.getInstructions()) {
+                instructionRows.add(new Object[]{instruction.getInstruction(), instruction.getStepNumber(), recipeIds[i]});
+            }
+
+            List<Integer> recipeIngredientIds = new ArrayList<>();
+            for (RecipeIngredientDTO ingredient : recipeDTO.getRecipeIngredients()) {
+                int ingredientId = ingredientIdsByName.get(IngredientService.key(ingredient.getName()));
+                ingredientRows.add(new Object[]{recipeIds[i], ingredientId, ingredient.getUnit(), ingredient.getAmount()});
+                recipeIngredientIds.add(ingredientId);
+            }
+            ingredientIds.add(recipeIngredientIds);
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_INSTRUCTION, instructionRows);
+        jdbcTemplate.batchUpdate(INSERT_RECIPE_INGREDIENT, ingredientRows);
+
+        return new ChunkResult(recipeIds, ingredientIds);
+    }
+
+    /**
+     * Method to insert the recipe rows of a chunk as one batch and read back their generated IDs.
+     * @param chunk The parsed recipes.
+     * @return The generated IDs in the order of the chunk.
+     */
+    private int[] insertRecipes(List<AddRecipeDTO> chunk) {
+        return jdbcTemplate.execute((ConnectionCallback<int[]>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_RECIPE, Statement.RETURN_GENERATED_KEYS)) {
+                for (AddRecipeDTO recipeDTO : chunk) {
+                    statement.setString(1, recipeDTO.getTitle());
+                    statement.setString(2, recipeDTO.getDescription());
+                    statement.setInt(3, recipeDTO.getCookingTime());
+                    statement.setInt(4, recipeDTO.getPreparationTime());
+                    statement.setInt(5, recipeDTO.getServings());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                int[] ids = new int[chunk.size()];
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    int index = 0;
+                    while (keys.next() && index < ids.length) {
+                        ids[index++] = keys.getInt(1);
+                    }
+                    if (index != ids.length) {
+                        throw new IllegalStateException("Expected " + ids.length + " generated recipe IDs but got " + index);
+                    }
+                }
+                return ids;
+            }
+        });
+    }
+
+    /**
+     * Method to check a parsed recipe against the constraints of the target columns before it is stored.
+     * @param recipeDTO The parsed recipe.
+     * @throws IllegalArgumentException If the recipe is invalid.
+     */
+    private void validate(AddRecipeDTO recipeDTO) {
+        if (recipeDTO.getTitle() == null || recipeDTO.getTitle().isBlank()) {
+            throw new IllegalArgumentException("Recipe has no title");
+        }
+        checkLength("Title", recipeDTO.getTitle(), MAX_VARCHAR_LENGTH);
+        checkLength("Description", recipeDTO.getDescription(), MAX_DESCRIPTION_LENGTH);
+
+        if (recipeDTO.getInstructions() == null) {
+            recipeDTO.setInstructions(List.of());
+        }
+        if (recipeDTO.getRecipeIngredients() == null) {
+            recipeDTO.setRecipeIngredients(List.of());
+        }
+        for (InstructionDTO instruction : recipeDTO.getInstructions()) {
+            if (instruction == null || instruction.getInstruction() == null) {
+                throw new IllegalArgumentException("Instruction has no text");
+            }
+            checkLength("Instruction " + instruction.getStepNumber(), instruction.getInstruction(), MAX_INSTRUCTION_LENGTH);
+        }
+        for (RecipeIngredientDTO ingredient : recipeDTO.getRecipeIngredients()) {
+            if (ingredient == null || ingredient.getName() == null || ingredient.getName().isBlank()) {
+                throw new IllegalArgumentException("Ingredient has no name");
+            }
+            if (ingredient.getUnit() == null) {
+                throw new IllegalArgumentException("Ingredient " + ingredient.getName() + " has no unit");
+            }
+            checkLength("Ingredient name", ingredient.getName(), MAX_VARCHAR_LENGTH);
+            checkLength("Unit of " + ingredient.getName(), ingredient.getUnit(), MAX_VARCHAR_LENGTH);
+        }
+    }
+
+    /**
+     * Method to check that a value fits its column.
+     * @param field The name of the field for the error message.
+     * @param value The value, may be null.
+     * @param maxLength The length of the column.
+     * @throws IllegalArgumentException If the value is too long.
+     */
+    private static void checkLength(String field, String value, int maxLength) {
+        if (value != null && value.length() > maxLength) {
+            throw new IllegalArgumentException(field + " is longer than " + maxLength + " characters");
+        }
+    }
+
+    private void addError(ImportResultDTO result, int line, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new ImportErrorDTO(line, message));
+        }
+    }
+
+    private static final class ChunkResult {
+        private final int[] recipeIds;
+        private final List<List<Integer>> ingredientIds;
+
+        private ChunkResult(int[] recipeIds, List<List<Integer>> ingredientIds) {
+            this.recipeIds = recipeIds;
+            this.ingredientIds = ingredientIds;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.bee.cookwithfriends.service;
+
+import com.bee.cookwithfriends.repositories.RecipeRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Service
+public class RecipeSamplingService {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final RecipeRepository recipeRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int[] recipeIds = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Constructor for RecipeSamplingService.
+     * @param recipeRepository The repository for handling recipe data.
+     */
+    public RecipeSamplingService(RecipeRepository recipeRepository) {
+        this.recipeRepository = recipeRepository;
+    }
+
+    /**
+     * Method to load the IDs of all stored recipes once the service is created.
+     */
+    @PostConstruct
+    public void loadRecipeIds() {
+        List<Integer> ids = recipeRepository.findAllIds(); // Only the IDs are selected, not the rows
+
+        lock.writeLock().lock();
+        try {
+            recipeIds = new int[Math.max(INITIAL_CAPACITY, ids.size())];
+            size = 0;
+            for (Integer id : ids) {
+                recipeIds[size++] = id;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method to register a newly stored recipe.
+     * @param recipeId The ID of the recipe.
+     */
+    public void addRecipe(int recipeId) {
+        lock.writeLock().lock();
+        try {
+            if (size == recipeIds.length) {
+                recipeIds = Arrays.copyOf(recipeIds, recipeIds.length * 2); // Grow the array
+            }
+            recipeIds[size++] = recipeId;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method to draw distinct random recipe IDs.
+     * Uses Floyd's algorithm followed by a shuffle of the drawn IDs, so the cost is O(count) regardless of the number of recipes.
+     * @param count The number of IDs to draw. At most all known IDs are returned.
+     * @param seed An optional seed for a reproducible draw, or null for a random one.
+     * @return The drawn recipe IDs in random order.
+     */
+    public int[] sample(int count, Long seed) {
+        Random random = seed != null ? new Random(seed) : ThreadLocalRandom.current();
+
+        lock.readLock().lock();
+        try {
+            int k = Math.max(0, Math.min(count, size));
+            int[] sample = new int[k];
+            Set<Integer> drawnPositions = new HashSet<>(k * 2);
+
+            int index = 0;
+            for (int j = size - k; j < size; j++) {
+                int position = random.nextInt(j + 1);
+                if (!drawnPositions.add(position)) {
+                    drawnPositions.add(j); // Position was already drawn, take j instead
+                    position = j;
+                }
+                sample[index++] = recipeIds[position];
+            }
+
+            for (int i = k - 1; i > 0; i--) { // Fisher-Yates shuffle of the drawn IDs
+                int swap = random.nextInt(i + 1);
+                int tmp = sample[i];
+                sample[i] = sample[swap];
+                sample[swap] = tmp;
+            }
+
+            return sample;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method to get the number of known recipes.
+     * @return The number of recipe IDs.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package com.bee.cookwithfriends.service;
+
+import com.bee.cookwithfriends.repositories.RecipeRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+@Service
+public class RecipeSearchService {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float PREFIX_PENALTY = 0.5f;
+
+    //Orders hits from the worst to the best: ascending score, then descending ID
+    private static final Comparator<SearchHit> WORST_FIRST = Comparator.comparingDouble(SearchHit::getScore)
+            .thenComparing(Comparator.comparingInt(SearchHit::getRecipeId).reversed());
+
+    private final RecipeRepository recipeRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //Sorted term dictionary, so that all terms with a given prefix form one contiguous range
+    private final NavigableMap<String, Postings> index = new TreeMap<>();
+    private final Set<Integer> indexedRecipes = new HashSet<>();
+
+    //Number of recipes indexed so far. Every posting records the generation its recipe was indexed in,
+    //so a search can be repeated on the index as it was at an earlier generation
+    private int generation = 0;
+
+    /**
+     * Constructor for RecipeSearchService.
+     * @param recipeRepository The repository for handling recipe data.
+     */
+    public RecipeSearchService(RecipeRepository recipeRepository) {
+        this.recipeRepository = recipeRepository;
+    }
+
+    /**
+     * Method to build the index from all stored recipes once the service is created.
+     */
+    @PostConstruct
+    public void buildIndex() {
+        List<Object[]> rows = recipeRepository.findAllSearchFields(); // Only id, title and description are selected
+
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            indexedRecipes.clear();
+            generation = 0;
+            for (Object[] row : rows) {
+                indexRecipe((Integer) row[0], (String) row[1], (String) row[2]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method to add a newly stored recipe to the index.
+     * @param recipeId The ID of the recipe.
+     * @param title The title of the recipe.
+     * @param description The description of the recipe.
+     */
+    public void addRecipe(int recipeId, String title, String description) {
+        lock.writeLock().lock();
+        try {
+            indexRecipe(recipeId, title, description);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method to get the current generation of the index, the snapshot a new search is paged on.
+     * @return The number of recipes indexed so far.
+     */
+    public int generation() {
+        lock.readLock().lock();
+        try {
+            return generation;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method to search the index as it was at a given generation.
+     * Every token of the query has to match a term of the title or the description, either exactly or as a prefix.
+     * Results are ranked by field weight, term frequency and the rarity of the matched terms.
+     * Recipes indexed later are skipped and the rarity is computed on the snapshot, so the scores of one query stay
+     * the same on every page and keyset pagination neither skips nor repeats hits.
+     * The posting lists are merged in recipe ID order and only the best hits of the page are kept in a bounded heap,
+     * so no score table of all matches is built.
+     * @param query The search query.
+     * @param limit The maximum number of results.
+     * @param after The last hit of the previous page, or null for the first page.
+     * @param snapshot The generation to search, from generation() for the first page.
+     * @return The best matching recipes ranked after the given hit, best match first.
+     */
+    public List<SearchHit> search(String query, int limit, SearchHit after, int snapshot) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        List<String> distinctTokens = new ArrayList<>(new LinkedHashSet<>(tokens));
+
+        lock.readLock().lock();
+        try {
+            PriorityQueue<TermCursor> cursors = openCursors(distinctTokens, Math.min(snapshot, generation));
+            if (cursors == null) {
+                return List.of(); // A token matches no term
+            }
+
+            PriorityQueue<SearchHit> best = new PriorityQueue<>(limit + 1, WORST_FIRST); // Bounded to the page size
+            float[] tokenScores = new float[distinctTokens.size()];
+            int[] openCursors = new int[distinctTokens.size()];
+            for (TermCursor cursor : cursors) {
+                openCursors[cursor.token]++;
+            }
+
+            while (!cursors.isEmpty()) { // Visits the recipes in ID order, merging the posting lists of all matched terms
+                int recipeId = cursors.peek().recipeId();
+                Arrays.fill(tokenScores, -1f);
+
+                while (!cursors.isEmpty() && cursors.peek().recipeId() == recipeId) {
+                    TermCursor cursor = cursors.poll();
+                    tokenScores[cursor.token] = Math.max(tokenScores[cursor.token], cursor.score()); // Best matching term per token
+                    if (cursor.advance()) {
+                        cursors.offer(cursor);
+                    } else {
+                        openCursors[cursor.token]--;
+                    }
+                }
+
+                float score = 0f;
+                boolean matchesAll = true;
+                for (float tokenScore : tokenScores) {
+                    if (tokenScore < 0f) {
+                        matchesAll = false; // Every token has to match
+                        break;
+                    }
+                    score += tokenScore;
+                }
+
+                if (matchesAll && (after == null || ranksAfter(recipeId, score, after))) { // Keyset condition of the page
+                    offer(best, recipeId, score, limit);
+                }
+
+                if (!allOpen(openCursors)) {
+                    break; // A token has no postings left, so no later recipe can match every token
+                }
+            }
+
+            List<SearchHit> result = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                result.add(best.poll());
+            }
+            Collections.reverse(result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method to fold a text into its index form: lower case and without accents.
+     * @param text The text to fold.
+     * @return The folded text.
+     */
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Method to split a text into folded tokens.
+     * @param text The text to split.
+     * @return The tokens of the text.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        for (String token : TOKEN_SEPARATOR.split(fold(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Method to add the terms of a recipe to the index. The caller has to hold the write lock.
+     * @param recipeId The ID of the recipe.
+     * @param title The title of the recipe.
+     * @param description The description of the recipe.
+     */
+    private void indexRecipe(int recipeId, String title, String description) {
+        if (!indexedRecipes.add(recipeId)) {
+            return; // Recipe is already indexed
+        }
+
+        generation++;
+
+        Map<String, Float> termWeights = new HashMap<>();
+        for (String token : tokenize(title)) {
+            termWeights.merge(token, TITLE_WEIGHT, Float::sum);
+        }
+        for (String token : tokenize(description)) {
+            termWeights.merge(token, DESCRIPTION_WEIGHT, Float::sum);
+        }
+
+        for (Map.Entry<String, Float> entry : termWeights.entrySet()) {
+            index.computeIfAbsent(entry.getKey(), term -> new Postings()).add(recipeId, entry.getValue(), generation);
+        }
+    }
+
+    /**
+     * Method to open a cursor on the posting list of every term matching a query token. The caller has to hold the read lock.
+     * @param tokens The distinct folded query tokens.
+     * @param snapshot The generation to search.
+     * @return The cursors ordered by their current recipe ID, or null if a token matches no term.
+     */
+    private PriorityQueue<TermCursor> openCursors(List<String> tokens, int snapshot) {
+        PriorityQueue<TermCursor> cursors = new PriorityQueue<>(Comparator.comparingInt(TermCursor::recipeId));
+        int recipeCount = Math.max(1, snapshot); // One recipe per generation
+
+        for (int token = 0; token < tokens.size(); token++) {
+            String prefix = tokens.get(token);
+            boolean matched = false;
+
+            for (Map.Entry<String, Postings> entry : index.subMap(prefix, true, prefix + Character.MAX_VALUE, false).entrySet()) {
+                Postings postings = entry.getValue();
+                int documents = postings.countUntil(snapshot);
+                if (documents == 0) {
+                    continue; // All recipes of the term were indexed after the snapshot
+                }
+
+                float idf = (float) Math.log(1.0 + (double) recipeCount / documents);
+                float factor = entry.getKey().length() == prefix.length() ? idf : idf * PREFIX_PENALTY; // Exact matches rank above prefix matches
+
+                TermCursor cursor = new TermCursor(postings, token, factor, snapshot);
+                if (cursor.seek()) {
+                    cursors.offer(cursor);
+                    matched = true;
+                }
+            }
+
+            if (!matched) {
+                return null;
+            }
+        }
+        return cursors;
+    }
+
+    /**
+     * Method to check if a scored recipe is ranked after a given hit.
+     * @param recipeId The ID of the recipe.
+     * @param score The score of the recipe.
+     * @param hit The hit to compare with.
+     * @return True if the recipe comes after the hit in the ranking.
+     */
+    private boolean ranksAfter(int recipeId, float score, SearchHit hit) {
+        return score < hit.getScore() || (score == hit.getScore() && recipeId > hit.getRecipeId());
+    }
+
+    private static boolean allOpen(int[] openCursors) {
+        for (int open : openCursors) {
+            if (open == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to offer a scored recipe to the bounded heap of the best results.
+     * A hit is only allocated if the recipe ranks above the worst result of a full heap.
+     * @param best The min-heap of the best results.
+     * @param recipeId The ID of the recipe.
+     * @param score The score of the recipe.
+     * @param limit The maximum number of results.
+     */
+    private static void offer(PriorityQueue<SearchHit> best, int recipeId, float score, int limit) {
+        if (best.size() >= limit) {
+            SearchHit worst = best.peek();
+            if (score < worst.getScore() || (score == worst.getScore() && recipeId > worst.getRecipeId())) {
+                return; // Ranks below every kept result
+            }
+            best.poll(); // Drop the worst result
+        }
+        best.offer(new SearchHit(recipeId, score));
+    }
+
+    /**
+     * A recipe found by the search together with its score.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class SearchHit {
+        private final int recipeId;
+        private final float score;
+    }
+
+    /**
+     * Posting list of one term, stored as parallel primitive arrays sorted by recipe ID.
+     */
+    private static final class Postings {
+        private int[] recipeIds = new int[4];
+        private float[] weights = new float[4];
+        private int[] generations = new int[4];
+        private int size = 0;
+
+        private void add(int recipeId, float weight, int generation) {
+            if (size == recipeIds.length) {
+                recipeIds = Arrays.copyOf(recipeIds, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+                generations = Arrays.copyOf(generations, size * 2);
+            }
+
+            int position = size;
+            while (position > 0 && recipeIds[position - 1] > recipeId) {
+                position--; // IDs mostly arrive in ascending order, so this rarely moves
+            }
+            System.arraycopy(recipeIds, position, recipeIds, position + 1, size - position);
+            System.arraycopy(weights, position, weights, position + 1, size - position);
+            System.arraycopy(generations, position, generations, position + 1, size - position);
+
+            recipeIds[position] = recipeId;
+            weights[position] = weight;
+            generations[position] = generation;
+            size++;
+        }
+
+        private int countUntil(int snapshot) {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (generations[i] <= snapshot) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Position in the posting list of one term matching a query token.
+     */
+    private static final class TermCursor {
+        private final Postings postings;
+        private final int token;
+        private final float factor;
+        private final int snapshot;
+        private int position = 0;
+
+        private TermCursor(Postings postings, int token, float factor, int snapshot) {
+            this.postings = postings;
+            this.token = token;
+            this.factor = factor;
+            this.snapshot = snapshot;
+        }
+
+        private int recipeId() {
+            return postings.recipeIds[position];
+        }
+
+        private float score() {
+            return postings.weights[position] * factor;
+        }
+
+        private boolean advance() {
+            position++;
+            return seek();
+        }
+
+        //Skips the postings of recipes indexed after the snapshot
+        private boolean seek() {
+            while (position < postings.size && postings.generations[position] > snapshot) {
+                position++;
+            }
+            return position < postings.size;
+        }
+    }
+}
@@ -1,38 +1,75 @@
 package com.bee.cookwithfriends.service;
 
+import com.bee.cookwithfriends.dto.PageDTO;
 import com.bee.cookwithfriends.dto.recipe.*;
 import com.bee.cookwithfriends.entity.Ingredient;
-import com.bee.cookwithfriends.entity.Instruction;
 import com.bee.cookwithfriends.entity.Recipe;
 import com.bee.cookwithfriends.entity.RecipeIngredient;
+import com.bee.cookwithfriends.mapper.RecipeMapper;
 import com.bee.cookwithfriends.repositories.IngredientRepository;
 import com.bee.cookwithfriends.repositories.RecipeRepository;
-import org.modelmapper.ModelMapper;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class RecipeService {
 
     private final RecipeRepository recipeRepository;
     private final IngredientRepository ingredientRepository;
-    private final ModelMapper mapper;
+    private final IngredientService ingredientService;
+    private final RecipeMapper mapper;
+    private final RecipeSamplingService samplingService;
+    private final RecipeSearchService searchService;
+    private final IngredientIndexService ingredientIndexService;
+    private final RecipeDetailCache detailCache;
+    private final RatingService ratingService;
+    private final TrendingService trendingService;
 
     /**
      * Constructor for RecipeService.
      * @param recipeRepository The repository for handling recipe data.
-     * @param mapper The ModelMapper for mapping entities to DTOs.
+     * @param mapper The mapper for mapping entities to DTOs.
      * @param ingredientRepository The repository for handling ingredient data.
+     * @param ingredientService The service for resolving ingredient names.
+     * @param samplingService The service for drawing random recipe IDs.
+     * @param searchService The full-text index over the recipes.
+     * @param ingredientIndexService The index from ingredients to recipes.
+     * @param detailCache The cache of assembled recipe details.
+     * @param ratingService The service collecting the ratings.
+     * @param trendingService The service counting recent recipe activity.
      */
-    public RecipeService(RecipeRepository recipeRepository, ModelMapper mapper, IngredientRepository ingredientRepository) {
+    public RecipeService(
+            RecipeRepository recipeRepository,
+            RecipeMapper mapper,
+            IngredientRepository ingredientRepository,
+            IngredientService ingredientService,
+            RecipeSamplingService samplingService,
+            RecipeSearchService searchService,
+            IngredientIndexService ingredientIndexService,
+            RecipeDetailCache detailCache,
+            RatingService ratingService,
+            TrendingService trendingService
+    ) {
         this.recipeRepository = recipeRepository;
         this.mapper = mapper;
         this.ingredientRepository = ingredientRepository;
+        this.ingredientService = ingredientService;
+        this.samplingService = samplingService;
+        this.searchService = searchService;
+        this.ingredientIndexService = ingredientIndexService;
+        this.detailCache = detailCache;
+        this.ratingService = ratingService;
+        this.trendingService = trendingService;
     }
 
     /**
@@ -42,26 +79,93 @@ public class RecipeService {
      * @throws ResponseStatusException If the recipe is not found.
      */
     public RecipeDTO findById(int id) {
-        Recipe recipe = recipeRepository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Recipe not found")); // Find the recipe by ID
+        RecipeDTO recipeDTO = getRecipeDetail(id); // Get the recipe with its instructions and ingredients
 
-        System.out.println(recipe.getPreparationTime()); // Print the preparation time for debugging purposes
+        trendingService.record(id, TrendingService.VIEW_WEIGHT); // Count the view for the trending recipes
 
-        RecipeDTO recipeDTO = mapper.map(recipe, RecipeDTO.class); // Map the recipe to a RecipeDTO
+        return recipeDTO;
+    }
 
-        recipeDTO.setIngredients(recipeIngredientListToDTO(recipe.getIngredients())); // Set the ingredients in the DTO
+    /**
+     * Method to search for recipes by title and description.
+     * @param title The search query.
+     * @param limit The maximum number of results on the page.
+     * @param cursor The continuation token of the previous page, or null for the first page.
+     * @return A page of RecipeSmallDTO representing the found recipes, best match first.
+     * @throws ResponseStatusException If the cursor is malformed or from a newer index.
+     */
+    @Transactional(readOnly = true)
+    public PageDTO<RecipeSmallDTO> searchByTitle(String title, int limit, String cursor) {
+        RecipeSearchService.SearchHit after = null;
+        int snapshot = searchService.generation(); // New searches see the whole index
+        if (cursor != null) {
+            long[] key = SearchCursor.decode(cursor, 3);
+            if (key[0] < 0 || key[0] > snapshot) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+            snapshot = (int) key[0]; // Later pages search the index of the first page, so the scores stay comparable
+            after = new RecipeSearchService.SearchHit((int) key[2], Float.intBitsToFloat((int) key[1])); // Score and ID of the last hit
+        }
 
-        return recipeDTO;
+        List<RecipeSearchService.SearchHit> hits = searchService.search(title, limit + 1, after, snapshot); // Rank the matching recipes in the index, one more to detect a next page
+
+        String nextCursor = null;
+        if (hits.size() > limit) {
+            hits = hits.subList(0, limit);
+            RecipeSearchService.SearchHit last = hits.get(limit - 1);
+            nextCursor = SearchCursor.encode(snapshot, Float.floatToIntBits(last.getScore()), last.getRecipeId());
+        }
+
+        List<Integer> ids = new ArrayList<>(hits.size());
+        for (RecipeSearchService.SearchHit hit : hits) {
+            ids.add(hit.getRecipeId());
+        }
+
+        List<Recipe> recipes = findAllByIdInOrder(ids); // Fetch only the rows of the results
+
+        return new PageDTO<>(mapper.toRecipeSmallDTOList(recipes), nextCursor);
     }
 
     /**
-     * Method to search for recipes by title.
-     * @param title The title to search for.
-     * @return A list of RecipeSmallDTO representing the found recipes.
+     * Method to find the recipes that can be cooked with the given ingredients.
+     * @param ingredientNames The names of the available ingredients.
+     * @param minMatches The minimum number of the given ingredients a recipe has to use.
+     * @param limit The maximum number of results.
+     * @return A list of RecipeMatchDTO, recipes using the most of the given ingredients first.
      */
-    public List<RecipeSmallDTO> searchByTitle(String title) {
-        List<Recipe> recipes = recipeRepository.findByTitleContainingIgnoreCase(title); // Find recipes by title
+    @Transactional(readOnly = true)
+    public List<RecipeMatchDTO> findByIngredients(List<String> ingredientNames, int minMatches, int limit) {
+        Collection<Integer> ingredientIds = ingredientService.resolveExisting(ingredientNames).values(); // Resolve the names from the cache
+
+        List<IngredientIndexService.IngredientMatch> matches = ingredientIndexService.findByIngredients(ingredientIds, Math.max(1, minMatches), limit);
+
+        List<Integer> ids = new ArrayList<>(matches.size());
+        for (IngredientIndexService.IngredientMatch match : matches) {
+            ids.add(match.getRecipeId());
+        }
+
+        Map<Integer, Recipe> recipesById = new HashMap<>();
+        for (Recipe recipe : recipeRepository.findAllById(ids)) { // Fetch only the rows of the results
+            recipesById.put(recipe.getId(), recipe);
+        }
+
+        List<RecipeMatchDTO> result = new ArrayList<>(matches.size());
+        for (IngredientIndexService.IngredientMatch match : matches) {
+            Recipe recipe = recipesById.get(match.getRecipeId());
+            if (recipe != null) {
+                result.add(new RecipeMatchDTO(
+                        recipe.getId(),
+                        recipe.getTitle(),
+                        recipe.getDescription(),
+                        recipe.getCookingTime(),
+                        recipe.getRating(),
+                        match.getMatchedIngredients(),
+                        match.getTotalIngredients()
+                ));
+            }
+        }
 
-        return recipeListToRecipeSmallDTOList(recipes); // Convert the list of recipes to a list of RecipeSmallDTO
+        return result;
     }
 
     /**
@@ -70,25 +174,38 @@ public class RecipeService {
      * @throws ResponseStatusException If no recipe is found.
      */
     public RecipeDTO getRandomRecipe() {
-        Recipe recipe = recipeRepository.getRandomRecipe().orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No Recipe found")); // Get a random recipe
-
-        RecipeDTO recipeDTO = mapper.map(recipe, RecipeDTO.class); // Map the recipe to a RecipeDTO
+        int[] ids = samplingService.sample(1, null); // Draw the ID of a random recipe
 
-        recipeDTO.setIngredients(recipeIngredientListToDTO(recipe.getIngredients())); // Set the ingredients in the DTO
+        if (ids.length == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No Recipe found");
+        }
 
-        return recipeDTO;
+        return getRecipeDetail(ids[0]); // Load the recipe with its instructions and ingredients
     }
 
     /**
      * Method to get a stack of random recipes.
      * @param count The number of random recipes to retrieve.
+     * @param seed An optional seed for a reproducible stack, or null for a random one.
      * @return A list of RecipeSmallDTO representing the random recipes.
      * @throws ResponseStatusException If no recipes are found.
      */
-    public List<RecipeSmallDTO> getRandomStackOfRecipes(int count) {
-        List<Recipe> recipes = recipeRepository.getRandomStackOfRecipes(count).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No Recipes found")); // Get a stack of random recipes
+    @Transactional(readOnly = true)
+    public List<RecipeSmallDTO> getRandomStackOfRecipes(int count, Long seed) {
+        int[] ids = samplingService.sample(count, seed); // Draw the IDs of the random recipes
+
+        if (ids.length == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No Recipes found");
+        }
+
+        List<Integer> idList = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            idList.add(id);
+        }
+
+        List<Recipe> recipes = findAllByIdInOrder(idList); // Fetch only the drawn rows
 
-        return recipeListToRecipeSmallDTOList(recipes); // Convert the list of recipes to a list of RecipeSmallDTO
+        return mapper.toRecipeSmallDTOList(recipes); // Convert the list of recipes to a list of RecipeSmallDTO
     }
 
     /**
@@ -98,19 +215,20 @@ public class RecipeService {
      */
     @Transactional
     public RecipeDTO addRecipe(AddRecipeDTO recipeDTO) {
-        Recipe recipe = mapper.map(recipeDTO, Recipe.class); // Map the DTO to a Recipe entity
+        Recipe recipe = mapper.toRecipe(recipeDTO); // Map the DTO to a Recipe entity with its instructions
 
         recipe.setRating(0); // Initialize the rating
         recipe.setSumRating(0); // Initialize the sum of ratings
         recipe.setCountRating(0); // Initialize the count of ratings
 
-        for (Instruction instruction : recipe.getInstructions()) {
-            instruction.setRecipe(recipe); // Set the recipe for each instruction
-        }
+        Map<String, Integer> ingredientIdsByName = ingredientService.resolveOrCreate(recipeDTO.getRecipeIngredients()); // Resolve all ingredients in one batch
 
         List<RecipeIngredient> ingredients = new ArrayList<>();
         for (RecipeIngredientDTO ingredientDTO : recipeDTO.getRecipeIngredients()) {
-            RecipeIngredient recipeIngredient = createRecipeIngredient(ingredientDTO); // Create a RecipeIngredient
+            int ingredientId = ingredientIdsByName.get(IngredientService.key(ingredientDTO.getName()));
+            Ingredient ingredient = ingredientRepository.getReferenceById(ingredientId); // Reference without loading the row
+
+            RecipeIngredient recipeIngredient = buildRecipeIngredient(ingredient, ingredientDTO); // Build the RecipeIngredient
             recipeIngredient.setRecipe(recipe); // Set the recipe for the ingredient
             ingredients.add(recipeIngredient); // Add the ingredient to the list
         }
@@ -119,111 +237,140 @@ public class RecipeService {
 
         recipe = recipeRepository.save(recipe); // Save the recipe to the repository
 
-        return mapper.map(recipe, RecipeDTO.class); // Map the saved recipe to a RecipeDTO
+        int recipeId = recipe.getId();
+        String title = recipe.getTitle();
+        String description = recipe.getDescription();
+        List<Integer> ingredientIds = new ArrayList<>(ingredientIdsByName.values());
+
+        afterCommit(() -> { // Readers must not find the ID before the row is visible, nor after a rollback
+            samplingService.addRecipe(recipeId); // Make the recipe available for random draws
+            searchService.addRecipe(recipeId, title, description); // Make the recipe searchable
+            ingredientIndexService.addRecipe(recipeId, ingredientIds); // Make the recipe findable by its ingredients
+        });
+
+        invalidateAfterCommit(recipe.getId()); // Drop any cached detail of this ID
+
+        return mapper.toRecipeDTO(recipe, recipeDTO.getRecipeIngredients()); // The ingredient references are not initialized for the DTO
     }
 
     /**
      * Method to rate a recipe.
+     * The vote is collected in memory and written to the database by the RatingService shortly after.
      * @param rateDTO The DTO containing the rating data.
-     * @return The new rating value.
+     * @return The new rating value including the votes not yet written.
      * @throws ResponseStatusException If the recipe is not found.
      */
-    @Transactional
     public int rateRecipe(RateRecipeDTO rateDTO) {
-        Recipe recipe = recipeRepository.findById(rateDTO.getRecipeId()).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Recipe not found")); // Find the recipe by ID
-
-        if (rateDTO.getRating() > 10 || rateDTO.getRating() < 0) return recipe.getRating(); // Check if the rating is within the valid range
-
-        recipe.setSumRating(recipe.getSumRating() + rateDTO.getRating()); // Update the sum of ratings
-        recipe.setCountRating(recipe.getCountRating() + 1); // Update the count of ratings
-
-        recipe.setRating(recipe.getSumRating() / recipe.getCountRating()); // Calculate the new rating
+        int rating = ratingService.rate(rateDTO.getRecipeId(), rateDTO.getRating()); // Record the vote, the cached detail is invalidated on flush
 
-        recipe = recipeRepository.save(recipe); // Save the updated recipe
+        trendingService.record(rateDTO.getRecipeId(), TrendingService.RATING_WEIGHT); // Count the vote for the trending recipes
 
-        return recipe.getRating(); // Return the new rating
+        return rating;
     }
 
     /**
-     * Method to convert a list of recipes to a list of RecipeSmallDTO.
-     * @param recipes The list of recipes.
-     * @return A list of RecipeSmallDTO.
+     * Method to fetch recipes by their IDs while keeping the order of the IDs.
+     * @param ids The IDs of the recipes.
+     * @return The found recipes in the order of the IDs. Missing recipes are skipped.
      */
-    private List<RecipeSmallDTO> recipeListToRecipeSmallDTOList(List<Recipe> recipes) {
-        List<RecipeSmallDTO> recipeDTOs = new ArrayList<>();
+    private List<Recipe> findAllByIdInOrder(List<Integer> ids) {
+        Map<Integer, Recipe> recipesById = new HashMap<>();
+        for (Recipe recipe : recipeRepository.findAllById(ids)) {
+            recipesById.put(recipe.getId(), recipe);
+        }
 
-        for (Recipe recipe : recipes) {
-            recipeDTOs.add(mapper.map(recipe, RecipeSmallDTO.class)); // Map each recipe to a RecipeSmallDTO
+        List<Recipe> recipes = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Recipe recipe = recipesById.get(id);
+            if (recipe != null) {
+                recipes.add(recipe);
+            }
         }
 
-        return recipeDTOs;
+        return recipes;
     }
 
     /**
-     * Method to create a RecipeIngredient from a RecipeIngredientDTO.
+     * Method to build a RecipeIngredient.
+     * @param ingredient The Ingredient entity.
      * @param ingredientDTO The DTO containing the ingredient data.
      * @return A RecipeIngredient entity.
      */
-    private RecipeIngredient createRecipeIngredient(RecipeIngredientDTO ingredientDTO) {
-        Ingredient ingredient = findOrCreateIngredient(ingredientDTO); // Find or create the ingredient
-        return buildRecipeIngredient(ingredient, ingredientDTO); // Build the RecipeIngredient
+    private RecipeIngredient buildRecipeIngredient(Ingredient ingredient, RecipeIngredientDTO ingredientDTO) {
+        RecipeIngredient recipeIngredient = new RecipeIngredient();
+        recipeIngredient.setIngredient(ingredient); // Set the ingredient
+        recipeIngredient.setUnit(ingredientDTO.getUnit()); // Set the unit
+        recipeIngredient.setAmount(ingredientDTO.getAmount()); // Set the amount
+        return recipeIngredient;
     }
 
     /**
-     * Method to find or create an ingredient.
-     * @param ingredientDTO The DTO containing the ingredient data.
-     * @return An Ingredient entity.
+     * Method to get the full detail view of a recipe from the cache, loading it on a miss.
+     * @param id The ID of the recipe.
+     * @return A RecipeDTO with instructions and ingredients.
+     * @throws ResponseStatusException If the recipe is not found.
      */
-    private Ingredient findOrCreateIngredient(RecipeIngredientDTO ingredientDTO) {
-        return ingredientRepository.findByName(ingredientDTO.getName())
-                .orElseGet(() -> saveNewIngredient(ingredientDTO)); // Find the ingredient by name or create a new one
+    private RecipeDTO getRecipeDetail(int id) {
+        RecipeDTO cached = detailCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = detailCache.generation(); // Read before loading, so a concurrent invalidation discards this load
+        RecipeDTO recipeDTO = loadRecipeDetail(id);
+        detailCache.put(recipeDTO, generation);
+
+        return recipeDTO;
     }
 
     /**
-     * Method to save a new ingredient.
-     * @param ingredientDTO The DTO containing the ingredient data.
-     * @return The saved Ingredient entity.
+     * Method to invalidate the cached detail of a recipe now and again once the current transaction has committed,
+     * so that a load running concurrently with the transaction cannot cache the old state.
+     * @param id The ID of the recipe.
      */
-    private Ingredient saveNewIngredient(RecipeIngredientDTO ingredientDTO) {
-        Ingredient ingredient = new Ingredient();
-        ingredient.setName(ingredientDTO.getName()); // Set the name of the ingredient
-        ingredient.setStandardUnit(ingredientDTO.getUnit()); // Set the standard unit of the ingredient
-        return ingredientRepository.save(ingredient); // Save the new ingredient
+    private void invalidateAfterCommit(int id) {
+        detailCache.invalidate(id);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    detailCache.invalidate(id);
+                }
+            });
+        }
     }
 
     /**
-     * Method to build a RecipeIngredient.
-     * @param ingredient The Ingredient entity.
-     * @param ingredientDTO The DTO containing the ingredient data.
-     * @return A RecipeIngredient entity.
+     * Method to run an action once the current transaction committed, or right away without a transaction.
+     * @param action The action to run.
      */
-    private RecipeIngredient buildRecipeIngredient(Ingredient ingredient, RecipeIngredientDTO ingredientDTO) {
-        RecipeIngredient recipeIngredient = new RecipeIngredient();
-        recipeIngredient.setIngredient(ingredient); // Set the ingredient
-        recipeIngredient.setUnit(ingredientDTO.getUnit()); // Set the unit
-        recipeIngredient.setAmount(ingredientDTO.getAmount()); // Set the amount
-        return recipeIngredient;
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 
     /**
-     * Method to convert a list of RecipeIngredient entities to a list of RecipeIngredientDTO.
-     * @param recipeIngredients The list of RecipeIngredient entities.
-     * @return A list of RecipeIngredientDTO.
+     * Method to load the full detail view of a recipe.
+     * Uses one statement for the recipe and its instructions and one projection for the ingredients with their names,
+     * independent of the number of ingredients.
+     * @param id The ID of the recipe.
+     * @return A RecipeDTO with instructions and ingredients.
+     * @throws ResponseStatusException If the recipe is not found.
      */
-    private List<RecipeIngredientDTO> recipeIngredientListToDTO(List<RecipeIngredient> recipeIngredients) {
-        List<RecipeIngredientDTO> recipeIngredientDTOList = new ArrayList<>();
-
-        for (RecipeIngredient recipeIngredient : recipeIngredients) {
-            RecipeIngredientDTO ingredientDTO = new RecipeIngredientDTO();
-            ingredientDTO.setAmount(recipeIngredient.getAmount()); // Set the amount
-            ingredientDTO.setUnit(recipeIngredient.getUnit()); // Set the unit
+    private RecipeDTO loadRecipeDetail(int id) {
+        Recipe recipe = recipeRepository.findWithInstructionsById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Recipe not found")); // Find the recipe with its instructions
 
-            Ingredient ingredient = ingredientRepository.findById(recipeIngredient.getIngredient().getId()).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Ingredient not found!")); // Find the ingredient by ID
-            ingredientDTO.setName(ingredient.getName()); // Set the name of the ingredient
-
-            recipeIngredientDTOList.add(ingredientDTO); // Add the DTO to the list
-        }
+        List<RecipeIngredientDTO> ingredients = recipeRepository.findIngredientDTOsByRecipeId(id); // Load the ingredients including their names
 
-        return recipeIngredientDTOList;
+        return mapper.toRecipeDTO(recipe, ingredients);
     }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.bee.cookwithfriends.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination.
+ * The token holds the sort key of the last returned element and is only meaningful to the service that created it.
+ */
+public final class SearchCursor {
+
+    private SearchCursor() {
+    }
+
+    /**
+     * Method to encode the sort key of the last element of a page.
+     * @param values The components of the sort key.
+     * @return The continuation token.
+     */
+    public static String encode(long... values) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) builder.append(':');
+            builder.append(values[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Method to decode a continuation token.
+     * @param cursor The continuation token.
+     * @param length The expected number of components.
+     * @return The components of the sort key.
+     * @throws ResponseStatusException If the token is malformed.
+     */
+    public static long[] decode(String cursor, int length) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (parts.length != length) {
+                throw new IllegalArgumentException("Unexpected cursor length");
+            }
+
+            long[] values = new long[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = Long.parseLong(parts[i]);
+            }
+            return values;
+        } catch (IllegalArgumentException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor", exception);
+        }
+    }
+}
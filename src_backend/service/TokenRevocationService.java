@@ -0,0 +1,137 @@
+package com.bee.cookwithfriends.service;
+
+import com.bee.cookwithfriends.entity.RevokedToken;
+import com.bee.cookwithfriends.repositories.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Store of revoked refresh token IDs.
+ * Revocations are persisted, but checked against an in-memory set that a timing wheel prunes once the tokens expire.
+ */
+@Service
+public class TokenRevocationService {
+    private static final int WHEEL_SIZE = 512; // Slots of the timing wheel, entries further out wait for later rounds
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long tickMillis;
+
+    private final Set<String> revoked = ConcurrentHashMap.newKeySet();
+    private final Queue<WheelEntry>[] wheel;
+    private long lastTick; // Last tick whose slot was swept, guarded by the advance method
+
+    /**
+     * Constructor for TokenRevocationService.
+     * @param revokedTokenRepository The repository for handling revoked tokens.
+     * @param tickMillis The duration of one slot of the timing wheel in milliseconds.
+     */
+    @SuppressWarnings("unchecked")
+    public TokenRevocationService(
+            RevokedTokenRepository revokedTokenRepository,
+            @Value("${security.jwt.revocation.tick:60000}") long tickMillis
+    ) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.tickMillis = tickMillis;
+        this.wheel = new Queue[WHEEL_SIZE];
+
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * Method to load the revocations of the tokens that are not expired yet.
+     */
+    @PostConstruct
+    void load() {
+        long now = System.currentTimeMillis();
+        lastTick = now / tickMillis;
+
+        for (RevokedToken token : revokedTokenRepository.findAllByExpiresAtAfter(new Date(now))) {
+            revoked.add(token.getJti());
+            schedule(token.getJti(), token.getExpiresAt().getTime());
+        }
+    }
+
+    /**
+     * Method to check if a token was revoked. Does not touch the database.
+     * @param jti The ID of the token.
+     * @return True if the token was revoked, false otherwise.
+     */
+    public boolean isRevoked(String jti) {
+        return revoked.contains(jti);
+    }
+
+    /**
+     * Method to revoke a token. Only one of concurrent calls for the same token succeeds.
+     * @param jti The ID of the token.
+     * @param expiresAt The expiration of the token.
+     * @return True if the token was revoked by this call, false if it was revoked before or is already expired.
+     */
+    public boolean revoke(String jti, Date expiresAt) {
+        if (expiresAt.getTime() <= System.currentTimeMillis()) {
+            return false; // Expired tokens are rejected anyway
+        }
+
+        if (!revoked.add(jti)) {
+            return false; // Already revoked, e.g. a reused refresh token
+        }
+
+        try {
+            revokedTokenRepository.save(new RevokedToken(jti, expiresAt)); // Persist, so the revocation survives a restart
+        } catch (RuntimeException exception) {
+            revoked.remove(jti);
+            throw exception;
+        }
+
+        schedule(jti, expiresAt.getTime());
+        return true;
+    }
+
+    /**
+     * Method to advance the timing wheel and drop the revocations of expired tokens.
+     */
+    @Scheduled(fixedRateString = "${security.jwt.revocation.tick:60000}")
+    public synchronized void advance() {
+        long now = System.currentTimeMillis();
+        long currentTick = now / tickMillis;
+
+        // Sweep the slots of all ticks that completed since the last run, at most one full round
+        for (long tick = Math.max(lastTick, currentTick - WHEEL_SIZE); tick < currentTick; tick++) {
+            wheel[(int) (tick % WHEEL_SIZE)].removeIf(entry -> {
+                if (entry.expiresAt <= now) {
+                    revoked.remove(entry.jti);
+                    return true;
+                }
+                return false; // Expires in a later round
+            });
+        }
+
+        lastTick = currentTick;
+        revokedTokenRepository.deleteExpired(new Date(now));
+    }
+
+    /**
+     * Method to put a token into the slot of the tick in which it expires.
+     * @param jti The ID of the token.
+     * @param expiresAt The expiration of the token in milliseconds.
+     */
+    private void schedule(String jti, long expiresAt) {
+        wheel[(int) ((expiresAt / tickMillis) % WHEEL_SIZE)].add(new WheelEntry(jti, expiresAt));
+    }
+
+    @AllArgsConstructor
+    private static final class WheelEntry {
+        private final String jti;
+        private final long expiresAt;
+    }
+}
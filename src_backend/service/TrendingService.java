@@ -0,0 +1,184 @@
+package com.bee.cookwithfriends.service;
+
+import com.bee.cookwithfriends.dto.recipe.RecipeSmallDTO;
+import com.bee.cookwithfriends.entity.Recipe;
+import com.bee.cookwithfriends.mapper.RecipeMapper;
+import com.bee.cookwithfriends.repositories.RecipeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Counts recent recipe activity in a sliding window of time buckets and publishes the most active recipes.
+ * Each bucket is a primitive counter array indexed by recipe ID, so recording an activity is a single atomic increment
+ * without locks or allocation. Older buckets count less, halving every half-life.
+ */
+@Service
+public class TrendingService {
+    public static final int VIEW_WEIGHT = 1;
+    public static final int RATING_WEIGHT = 5;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final RecipeRepository recipeRepository;
+    private final RecipeMapper mapper;
+    private final int bucketCount;
+    private final double halfLifeBuckets;
+    private final int size;
+
+    private volatile AtomicIntegerArray[] buckets;
+    private volatile int currentBucket = 0;
+    private volatile List<RecipeSmallDTO> snapshot = List.of();
+
+    /**
+     * Constructor for TrendingService.
+     * @param recipeRepository The repository for handling recipe data.
+     * @param mapper The mapper for mapping entities to DTOs.
+     * @param bucketCount The number of time buckets in the window.
+     * @param halfLifeBuckets The number of buckets after which an activity counts half.
+     * @param size The number of trending recipes kept.
+     */
+    public TrendingService(
+            RecipeRepository recipeRepository,
+            RecipeMapper mapper,
+            @Value("${recipe.trending.buckets:6}") int bucketCount,
+            @Value("${recipe.trending.half-life-buckets:2}") double halfLifeBuckets,
+            @Value("${recipe.trending.size:100}") int size
+    ) {
+        this.recipeRepository = recipeRepository;
+        this.mapper = mapper;
+        this.bucketCount = bucketCount;
+        this.halfLifeBuckets = halfLifeBuckets;
+        this.size = size;
+
+        AtomicIntegerArray[] initial = new AtomicIntegerArray[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            initial[i] = new AtomicIntegerArray(INITIAL_CAPACITY);
+        }
+        this.buckets = initial;
+    }
+
+    /**
+     * Method to record an activity on a recipe.
+     * @param recipeId The ID of the recipe.
+     * @param weight The weight of the activity, for example VIEW_WEIGHT or RATING_WEIGHT.
+     */
+    public void record(int recipeId, int weight) {
+        if (recipeId < 0) {
+            return;
+        }
+
+        AtomicIntegerArray bucket = buckets[currentBucket];
+        if (recipeId >= bucket.length()) {
+            grow(recipeId); // Only for recipes newer than the last growth
+            bucket = buckets[currentBucket];
+        }
+        bucket.addAndGet(recipeId, weight);
+    }
+
+    /**
+     * Method to get the trending recipes. Served from the published snapshot.
+     * @param limit The maximum number of recipes.
+     * @return The trending recipes, most active first.
+     */
+    public List<RecipeSmallDTO> getTrending(int limit) {
+        List<RecipeSmallDTO> current = snapshot;
+        return current.subList(0, Math.min(limit, current.size()));
+    }
+
+    /**
+     * Method to start a new time bucket. The oldest bucket is cleared and becomes the current one.
+     */
+    @Scheduled(fixedRateString = "${recipe.trending.bucket-length:600000}", initialDelayString = "${recipe.trending.bucket-length:600000}")
+    public synchronized void rotate() {
+        int next = (currentBucket + 1) % bucketCount;
+        AtomicIntegerArray bucket = buckets[next];
+        for (int i = 0; i < bucket.length(); i++) {
+            bucket.set(i, 0);
+        }
+        currentBucket = next;
+    }
+
+    /**
+     * Method to recompute the trending recipes from the decayed activity counts and publish them.
+     */
+    @Scheduled(fixedDelayString = "${recipe.trending.recompute-interval:60000}")
+    public void recompute() {
+        AtomicIntegerArray[] current;
+        int newest;
+        synchronized (this) {
+            current = buckets;
+            newest = currentBucket;
+        }
+
+        double[] factors = new double[bucketCount];
+        for (int age = 0; age < bucketCount; age++) {
+            factors[(newest - age + bucketCount) % bucketCount] = Math.pow(0.5, age / halfLifeBuckets);
+        }
+
+        int capacity = current[0].length();
+        PriorityQueue<double[]> heap = new PriorityQueue<>(size + 1, Comparator.comparingDouble(entry -> entry[1])); // Min-heap of (recipe ID, score)
+
+        for (int recipeId = 0; recipeId < capacity; recipeId++) {
+            double score = 0;
+            for (int bucket = 0; bucket < bucketCount; bucket++) {
+                score += current[bucket].get(recipeId) * factors[bucket];
+            }
+
+            if (score > 0) {
+                heap.offer(new double[]{recipeId, score});
+                if (heap.size() > size) {
+                    heap.poll(); // Drop the least active recipe
+                }
+            }
+        }
+
+        List<double[]> top = new ArrayList<>(heap);
+        top.sort(Comparator.comparingDouble((double[] entry) -> entry[1]).reversed());
+
+        List<Integer> ids = new ArrayList<>(top.size());
+        for (double[] entry : top) {
+            ids.add((int) entry[0]);
+        }
+
+        Map<Integer, Recipe> recipesById = new HashMap<>();
+        for (Recipe recipe : recipeRepository.findAllById(ids)) { // One query for the trending recipes
+            recipesById.put(recipe.getId(), recipe);
+        }
+
+        List<RecipeSmallDTO> trending = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Recipe recipe = recipesById.get(id);
+            if (recipe != null) {
+                trending.add(mapper.toRecipeSmallDTO(recipe));
+            }
+        }
+
+        snapshot = Collections.unmodifiableList(trending);
+    }
+
+    /**
+     * Method to grow all buckets so that they can hold the given recipe ID.
+     * Increments racing with the copy may be lost, which is acceptable for activity counts.
+     * @param recipeId The ID that has to fit.
+     */
+    private synchronized void grow(int recipeId) {
+        AtomicIntegerArray[] current = buckets;
+        if (recipeId < current[0].length()) {
+            return; // Already grown by another thread
+        }
+
+        int capacity = Math.max(recipeId + 1, current[0].length() * 2);
+        AtomicIntegerArray[] grown = new AtomicIntegerArray[bucketCount];
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            grown[bucket] = new AtomicIntegerArray(capacity);
+            for (int i = 0; i < current[bucket].length(); i++) {
+                grown[bucket].set(i, current[bucket].get(i));
+            }
+        }
+        buckets = grown;
+    }
+}
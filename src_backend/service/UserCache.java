@@ -0,0 +1,103 @@
+package com.bee.cookwithfriends.service;
+
+import com.bee.cookwithfriends.config.AuthenticatedUser;
+import com.bee.cookwithfriends.entity.User;
+import com.bee.cookwithfriends.repositories.UserRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size- and TTL-bounded LRU cache of authenticated principals keyed by email.
+ * Used by the paths that cannot build the principal from token claims alone.
+ */
+@Service
+public class UserCache {
+    private final UserRepository userRepository;
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) { // Access order for LRU eviction
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * Constructor for UserCache.
+     * @param userRepository The repository for handling user data.
+     * @param maxEntries The maximum number of cached users.
+     * @param ttlMillis The time in milliseconds after which a cached user expires.
+     */
+    public UserCache(
+            UserRepository userRepository,
+            @Value("${user.cache.max-entries:10000}") int maxEntries,
+            @Value("${user.cache.ttl:300000}") long ttlMillis
+    ) {
+        this.userRepository = userRepository;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Method to get the principal of a user by email, loading it from the database on a miss.
+     * @param email The email of the user.
+     * @return The principal of the user.
+     * @throws UsernameNotFoundException If the user is not found.
+     */
+    public AuthenticatedUser getByEmail(String email) {
+        synchronized (entries) {
+            Entry entry = entries.get(email);
+
+            if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                return entry.user;
+            }
+
+            if (entry != null) {
+                entries.remove(email); // Drop the expired entry
+            }
+        }
+
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found")); // Find the user by email and throw an exception if not found
+
+        AuthenticatedUser principal = toPrincipal(user);
+
+        synchronized (entries) {
+            entries.put(email, new Entry(principal, System.currentTimeMillis() + ttlMillis));
+        }
+
+        return principal;
+    }
+
+    /**
+     * Method to remove a user from the cache after it was changed or deleted.
+     * Every write to an existing user row has to call this, as the cached principal holds the username and email.
+     * @param email The email of the user.
+     */
+    public void invalidate(String email) {
+        synchronized (entries) {
+            entries.remove(email);
+        }
+    }
+
+    /**
+     * Method to build the principal of a user entity.
+     * @param user The user entity.
+     * @return The principal of the user.
+     */
+    public static AuthenticatedUser toPrincipal(User user) {
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getEmail());
+    }
+
+    @AllArgsConstructor
+    private static final class Entry {
+        private final AuthenticatedUser user;
+        private final long expiresAt;
+    }
+}
@@ -0,0 +1,196 @@
+package com.bee.cookwithfriends.service;
+
+import com.bee.cookwithfriends.dto.user.UserDTO;
+import com.bee.cookwithfriends.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory prefix index over usernames.
+ * Folded usernames are kept in one sorted array, so that all names with a given prefix form one contiguous range found by binary search.
+ */
+@Service
+public class UserSearchService {
+    private final UserRepository userRepository;
+    private final int maxResults;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //Folded usernames in ascending order and the IDs of their users at the same positions
+    private String[] foldedNames = new String[0];
+    private int[] userIds = new int[0];
+    private int size = 0;
+
+    //Username by user ID, the IDs are dense auto-increment values
+    private String[] usernameById = new String[0];
+
+    /**
+     * Constructor for UserSearchService.
+     * @param userRepository The repository for handling user data.
+     * @param maxResults The hard cap of results of one search.
+     */
+    public UserSearchService(
+            UserRepository userRepository,
+            @Value("${user.search.max-results:200}") int maxResults
+    ) {
+        this.userRepository = userRepository;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Method to build the index from all stored users once the service is created.
+     */
+    @PostConstruct
+    public void buildIndex() {
+        List<Object[]> rows = userRepository.findAllIdsAndUsernames(); // Only id and username are selected
+
+        Object[][] entries = new Object[rows.size()][];
+        int maxId = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            entries[i] = new Object[]{RecipeSearchService.fold((String) row[1]), row[0], row[1]};
+            maxId = Math.max(maxId, (Integer) row[0]);
+        }
+        Arrays.sort(entries, Comparator.comparing((Object[] entry) -> (String) entry[0]).thenComparing(entry -> (Integer) entry[1]));
+
+        lock.writeLock().lock();
+        try {
+            foldedNames = new String[Math.max(16, entries.length)];
+            userIds = new int[foldedNames.length];
+            usernameById = new String[maxId + 1];
+            size = entries.length;
+
+            for (int i = 0; i < entries.length; i++) {
+                foldedNames[i] = (String) entries[i][0];
+                userIds[i] = (Integer) entries[i][1];
+                usernameById[userIds[i]] = (String) entries[i][2];
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method to add a newly registered user to the index.
+     * @param userId The ID of the user.
+     * @param username The username of the user.
+     */
+    public void addUser(int userId, String username) {
+        String folded = RecipeSearchService.fold(username);
+
+        lock.writeLock().lock();
+        try {
+            if (size == foldedNames.length) {
+                foldedNames = Arrays.copyOf(foldedNames, Math.max(16, size * 2));
+                userIds = Arrays.copyOf(userIds, foldedNames.length);
+            }
+            if (userId >= usernameById.length) {
+                usernameById = Arrays.copyOf(usernameById, Math.max(userId + 1, usernameById.length * 2));
+            }
+
+            int position = lowerBound(folded);
+            System.arraycopy(foldedNames, position, foldedNames, position + 1, size - position);
+            System.arraycopy(userIds, position, userIds, position + 1, size - position);
+            foldedNames[position] = folded;
+            userIds[position] = userId;
+            usernameById[userId] = username;
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method to get the username of an indexed user.
+     * @param userId The ID of the user.
+     * @return The username, or null if the user is not indexed.
+     */
+    public String getUsername(int userId) {
+        lock.readLock().lock();
+        try {
+            return userId < usernameById.length ? usernameById[userId] : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method to get the hard cap of results of one search.
+     * @return The maximum number of results.
+     */
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * Method to search for users whose username starts with a prefix.
+     * Related users, such as friends and pending requesters, are ranked first, the others follow in name order.
+     * @param prefix The prefix of the username.
+     * @param related The IDs of the users to rank first.
+     * @param limit The maximum number of results, capped at the configured maximum.
+     * @return The matching users in ranked order.
+     */
+    public List<UserDTO> search(String prefix, Set<Integer> related, int limit) {
+        String folded = RecipeSearchService.fold(prefix.trim());
+        int cap = Math.min(limit, maxResults);
+        List<UserDTO> results = new ArrayList<>();
+
+        if (folded.isEmpty() || cap <= 0) {
+            return results; // An empty prefix would list every user
+        }
+
+        lock.readLock().lock();
+        try {
+            // Related users are few, so they are checked directly instead of being searched for in the range
+            for (int userId : related) {
+                String username = userId < usernameById.length ? usernameById[userId] : null;
+                if (username != null && RecipeSearchService.fold(username).startsWith(folded)) {
+                    results.add(new UserDTO(userId, username));
+                }
+            }
+            results.sort(Comparator.comparing(user -> RecipeSearchService.fold(user.getUsername())));
+
+            if (results.size() >= cap) {
+                return new ArrayList<>(results.subList(0, cap));
+            }
+
+            for (int i = lowerBound(folded); i < size && results.size() < cap && foldedNames[i].startsWith(folded); i++) {
+                if (!related.contains(userIds[i])) { // Already ranked first
+                    results.add(new UserDTO(userIds[i], usernameById[userIds[i]]));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return results;
+    }
+
+    /**
+     * Method to find the first position whose folded name is not smaller than a value. The caller has to hold a lock.
+     * @param value The folded value.
+     * @return The position of the first name not smaller than the value.
+     */
+    private int lowerBound(String value) {
+        int low = 0;
+        int high = size;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (foldedNames[middle].compareTo(value) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+}
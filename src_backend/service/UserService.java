@@ -1,40 +1,89 @@
 package com.bee.cookwithfriends.service;
 
+import com.bee.cookwithfriends.config.AuthenticatedUser;
+import com.bee.cookwithfriends.dto.PageDTO;
 import com.bee.cookwithfriends.dto.user.CurrentUserDTO;
+import com.bee.cookwithfriends.dto.user.FriendRequestBatchDTO;
+import com.bee.cookwithfriends.dto.user.FriendRequestBatchResultDTO;
 import com.bee.cookwithfriends.dto.user.FriendRequestDTO;
+import com.bee.cookwithfriends.dto.user.FriendSuggestionDTO;
 import com.bee.cookwithfriends.dto.user.UserDTO;
 import com.bee.cookwithfriends.entity.FriendRequest;
 import com.bee.cookwithfriends.entity.User;
 import com.bee.cookwithfriends.exceptions.FriendshipException;
+import com.bee.cookwithfriends.mapper.UserMapper;
 import com.bee.cookwithfriends.repositories.FriendRequestRepository;
 import com.bee.cookwithfriends.repositories.UserRepository;
-import org.modelmapper.ModelMapper;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class UserService {
+    //Ignores a friendship that a concurrent transaction stored first, the unique key on (person_id, friend_id) detects it
+    private static final String INSERT_FRIENDSHIP = "INSERT IGNORE INTO friends (person_id, friend_id) VALUES (?, ?)";
+
     private final UserRepository userRepository;
-    private final ModelMapper mapper;
+    private final UserMapper mapper;
     private final FriendRequestRepository friendRequestRepository;
+    private final UserSearchService userSearchService;
+    private final FriendGraphService friendGraphService;
+    private final FriendSuggestionService friendSuggestionService;
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationService notificationService;
 
     /**
      * Constructor for UserService.
      * @param userRepository The repository for handling user data.
-     * @param mapper The ModelMapper for mapping entities to DTOs.
+     * @param mapper The mapper for mapping entities to DTOs.
      * @param friendRequestRepository The repository for handling friend request data.
+     * @param userSearchService The service for searching users by username prefix.
+     * @param friendGraphService The in-memory graph of friendships.
+     * @param friendSuggestionService The service for suggesting friends of friends.
+     * @param jdbcTemplate The JdbcTemplate for inserting friendship edges.
+     * @param notificationService The service for pushing friendship events to connected clients.
      */
-    public UserService(UserRepository userRepository, ModelMapper mapper, FriendRequestRepository friendRequestRepository) {
+    public UserService(
+            UserRepository userRepository,
+            UserMapper mapper,
+            FriendRequestRepository friendRequestRepository,
+            UserSearchService userSearchService,
+            FriendGraphService friendGraphService,
+            FriendSuggestionService friendSuggestionService,
+            JdbcTemplate jdbcTemplate,
+            NotificationService notificationService
+    ) {
         this.userRepository = userRepository;
         this.mapper = mapper;
         this.friendRequestRepository = friendRequestRepository;
+        this.userSearchService = userSearchService;
+        this.friendGraphService = friendGraphService;
+        this.friendSuggestionService = friendSuggestionService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.notificationService = notificationService;
+    }
+
+    /**
+     * Method to open an event stream of friend requests and friendships for the current user.
+     * @return The emitter of the new connection.
+     */
+    public SseEmitter subscribeToEvents() {
+        return notificationService.subscribe(getAuthenticatedUser().getId());
     }
 
     /**
@@ -42,9 +91,9 @@ public class UserService {
      * @return A CurrentUserDTO representing the authenticated user.
      */
     public CurrentUserDTO me() {
-        User currentUser = getAuthenticatedUser(); // Get the authenticated user
+        AuthenticatedUser currentUser = getAuthenticatedUser(); // Get the authenticated user
 
-        return mapper.map(currentUser, CurrentUserDTO.class); // Map the user to a CurrentUserDTO
+        return mapper.toCurrentUserDTO(currentUser, friendGraphService.friendCount(currentUser.getId())); // Map the user to a CurrentUserDTO
     }
 
     /**
@@ -56,8 +105,7 @@ public class UserService {
      */
     @Transactional
     public FriendRequestDTO sendFriendRequest(int receiverId) {
-        User sender = getAuthenticatedUser(); // Get the authenticated user as the sender
-        sender = userRepository.findById(sender.getId())
+        User sender = userRepository.findById(getAuthenticatedUser().getId())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sender not found")); // Ensure the sender exists
 
         User receiver = userRepository.findById(receiverId)
@@ -67,53 +115,115 @@ public class UserService {
             throw new FriendshipException("Sender and receiver are the same user"); // Check if the sender and receiver are the same
         }
 
-        if (sender.isFriend(receiver)) {
+        if (friendGraphService.areFriends(sender.getId(), receiver.getId())) {
             throw new FriendshipException("User is already stored as friend"); // Check if the users are already friends
         }
 
-        FriendRequest friendRequest = new FriendRequest(sender, receiver); // Create a new friend request
-
-        if (checkFriendRequestExists(friendRequest.getSender(), friendRequest.getReceiver())) {
-            throw new FriendshipException("FriendRequest already exists"); // Check if the friend request already exists
+        if (friendRequestRepository.existsBetween(sender.getId(), receiver.getId())) {
+            throw new FriendshipException("FriendRequest already exists"); // Check if a friend request exists in either direction
         }
 
+        FriendRequest friendRequest = new FriendRequest(sender, receiver); // Create a new friend request
+
         FriendRequest request = friendRequestRepository.save(friendRequest); // Save the friend request
 
+        UserDTO senderDTO = mapper.toUserDTO(sender);
+        afterCommit(() -> notificationService.publish(receiver.getId(), NotificationService.FRIEND_REQUEST_EVENT, senderDTO)); // Push the request to the receiver
+
         return friendRequestToDTO(request); // Convert the friend request to a DTO
     }
 
     /**
      * Method to accept a friend request.
      * @param senderId The ID of the user who sent the friend request.
-     * @throws FriendshipException If the user is not found or the friend request is not found.
+     * @throws FriendshipException If the friend request is not found.
      */
     @Transactional
     public void acceptFriendRequest(int senderId) {
-        User acceptor = getAuthenticatedUser(); // Get the authenticated user as the acceptor
+        int acceptorId = getAuthenticatedUser().getId(); // Get the authenticated user as the acceptor
 
-        User sender = userRepository.findById(senderId)
-                .orElseThrow(() -> new FriendshipException("User not found")); // Ensure the sender exists
+        if (friendRequestRepository.deleteBySenderIdsAndReceiverId(List.of(senderId), acceptorId) == 0) {
+            throw new FriendshipException("FriendRequest not found"); // Nothing was deleted, so the friend request does not exist
+        }
 
-        FriendRequest storedFriendRequest = friendRequestRepository.findBySenderAndReceiver(sender, acceptor)
-                .orElseThrow(() -> new FriendshipException("FriendRequest not found")); // Ensure the friend request exists
+        insertFriendships(List.of(senderId), acceptorId); // Insert the friendship edge without loading any user
+    }
 
-        sender.addFriend(acceptor); // Add the acceptor to the sender's friends list
+    /**
+     * Method to accept and decline many pending friend requests in one transaction.
+     * IDs without a pending friend request to the current user are ignored.
+     * @param batch The IDs of the senders whose requests are accepted or declined.
+     * @return A FriendRequestBatchResultDTO with the IDs of the senders whose requests were answered.
+     */
+    @Transactional
+    public FriendRequestBatchResultDTO answerFriendRequests(FriendRequestBatchDTO batch) {
+        int receiverId = getAuthenticatedUser().getId();
+        Set<Integer> pending = new HashSet<>(friendRequestRepository.findSenderIdsByReceiverId(receiverId)); // One query for all pending requests
+
+        List<Integer> accepted = new ArrayList<>();
+        if (batch.getAccept() != null) {
+            for (Integer senderId : batch.getAccept()) {
+                if (senderId != null && pending.remove(senderId)) { // Removing also skips duplicates
+                    accepted.add(senderId);
+                }
+            }
+        }
 
-        friendRequestRepository.delete(storedFriendRequest); // Delete the friend request
+        List<Integer> declined = new ArrayList<>();
+        if (batch.getDecline() != null) {
+            for (Integer senderId : batch.getDecline()) {
+                if (senderId != null && pending.remove(senderId)) {
+                    declined.add(senderId);
+                }
+            }
+        }
+
+        List<Integer> answered = new ArrayList<>(accepted);
+        answered.addAll(declined);
+        if (!answered.isEmpty()) {
+            friendRequestRepository.deleteBySenderIdsAndReceiverId(answered, receiverId); // One delete for all answered requests
+        }
+
+        insertFriendships(accepted, receiverId);
 
-        userRepository.save(sender); // Save the updated sender
+        return new FriendRequestBatchResultDTO(accepted, declined);
     }
 
     /**
-     * Method to search for users by username.
-     * @param username The username to search for.
-     * @return A list of UserDTO representing the found users.
+     * Method to search for users by username prefix.
+     * Friends and pending requesters of the current user are ranked first.
+     * @param username The prefix of the username to search for.
+     * @param limit The maximum number of users on the page.
+     * @param cursor The continuation token of the previous page, or null for the first page.
+     * @return A page of UserDTO representing the found users.
+     * @throws ResponseStatusException If the cursor points outside the searchable results.
      */
     @Transactional(readOnly = true)
-    public List<UserDTO> searchUsers(String username) {
-        List<User> users = userRepository.findByUsernameContainingIgnoreCase(username); // Find users by username
+    public PageDTO<UserDTO> searchUsers(String username, int limit, String cursor) {
+        long position = cursor != null ? SearchCursor.decode(cursor, 1)[0] : 0; // Position of the first user of the page in the ranking
+        if (position < 0 || position > userSearchService.getMaxResults()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+        int offset = (int) position; // Safe, the position is within the search cap
+
+        int userId = getAuthenticatedUser().getId();
+        Set<Integer> related = new HashSet<>();
+        for (int friendId : friendGraphService.friendIds(userId)) {
+            related.add(friendId); // Friends of the current user
+        }
+        related.addAll(friendRequestRepository.findSenderIdsByReceiverId(userId)); // Users waiting for an answer to their friend request
+
+        int wanted = (int) Math.min((long) offset + limit + 1, userSearchService.getMaxResults()); // Rank one more user to detect a next page
+        List<UserDTO> ranked = userSearchService.search(username, related, wanted);
 
-        return userListToUserDTO(users); // Convert the list of users to a list of UserDTO
+        if (offset >= ranked.size()) {
+            return new PageDTO<>(List.of(), null);
+        }
+
+        int end = (int) Math.min((long) offset + limit, ranked.size());
+        String nextCursor = ranked.size() > end ? SearchCursor.encode(end) : null;
+
+        return new PageDTO<>(new ArrayList<>(ranked.subList(offset, end)), nextCursor);
     }
 
     /**
@@ -122,15 +232,56 @@ public class UserService {
      */
     @Transactional(readOnly = true)
     public List<UserDTO> friends() {
-        User user = getAuthenticatedUser(); // Get the authenticated user
+        int[] friendIds = friendGraphService.friendIds(getAuthenticatedUser().getId()); // Friends in both directions
+
+        List<Integer> ids = new ArrayList<>(friendIds.length);
+        for (int friendId : friendIds) {
+            ids.add(friendId);
+        }
+
+        List<User> friends = userRepository.findAllById(ids); // One query for all friends
+
+        return mapper.toUserDTOList(friends); // Convert the list of friends to a list of UserDTO
+    }
+
+    /**
+     * Method to get friend suggestions for the current user, ranked by the number of mutual friends.
+     * Existing friends and users with a pending friend request in either direction are left out.
+     * @param limit The maximum number of suggestions.
+     * @return A list of FriendSuggestionDTO representing the suggested users.
+     */
+    @Transactional(readOnly = true)
+    public List<FriendSuggestionDTO> friendSuggestions(int limit) {
+        int userId = getAuthenticatedUser().getId();
+        FriendSuggestionService.Suggestions suggestions = friendSuggestionService.getSuggestions(userId);
+
+        Set<Integer> pending = new HashSet<>(friendRequestRepository.findSenderIdsByReceiverId(userId)); // Requests to the current user
+        pending.addAll(friendRequestRepository.findReceiverIdsBySenderId(userId)); // Requests of the current user
+
+        List<Integer> ids = new ArrayList<>(limit);
+        Map<Integer, Integer> mutualFriends = new HashMap<>();
+        for (int i = 0; i < suggestions.getUserIds().length && ids.size() < limit; i++) {
+            int candidateId = suggestions.getUserIds()[i];
+            if (!pending.contains(candidateId) && !friendGraphService.areFriends(userId, candidateId)) { // Suggestions may predate a new friendship
+                ids.add(candidateId);
+                mutualFriends.put(candidateId, suggestions.getMutualFriends()[i]);
+            }
+        }
 
-        user = userRepository.findById(user.getId())
-                .orElseThrow(() -> new FriendshipException("User not found")); // Ensure the user exists
+        Map<Integer, User> users = new HashMap<>();
+        for (User user : userRepository.findAllById(ids)) { // One query for all suggested users
+            users.put(user.getId(), user);
+        }
 
-        List<User> friends = user.getFriends();
-        friends.addAll(user.getFriendOf()); // Combine friends and friendOf lists
+        List<FriendSuggestionDTO> result = new ArrayList<>(ids.size());
+        for (int candidateId : ids) {
+            User user = users.get(candidateId);
+            if (user != null) {
+                result.add(new FriendSuggestionDTO(candidateId, user.getUsername(), mutualFriends.get(candidateId)));
+            }
+        }
 
-        return userListToUserDTO(friends); // Convert the list of friends to a list of UserDTO
+        return result;
     }
 
     /**
@@ -139,62 +290,105 @@ public class UserService {
      */
     @Transactional(readOnly = true)
     public List<UserDTO> getFriendRequests() {
-        User user = getAuthenticatedUser(); // Get the authenticated user
+        AuthenticatedUser user = getAuthenticatedUser(); // Get the authenticated user
 
         List<User> friendRequests = friendRequestRepository.findSendersByReceiverId(user.getId()); // Find the senders of the friend requests
 
-        return userListToUserDTO(friendRequests); // Convert the list of senders to a list of UserDTO
+        return mapper.toUserDTOList(friendRequests); // Convert the list of senders to a list of UserDTO
     }
 
     /**
      * Method to get the currently authenticated user.
-     * @return The authenticated user.
+     * @return The principal of the authenticated user.
      */
-    private User getAuthenticatedUser() {
+    private AuthenticatedUser getAuthenticatedUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication(); // Get the current authentication context
-        return (User) authentication.getPrincipal(); // Get the authenticated user from the context
+        return (AuthenticatedUser) authentication.getPrincipal(); // Get the authenticated user from the context
     }
 
     /**
-     * Method to convert a FriendRequest to a FriendRequestDTO.
-     * @param friendRequest The FriendRequest to convert.
-     * @return A FriendRequestDTO representing the friend request.
+     * Method to insert the friendship edges between a user and other users in one JDBC batch.
+     * Every edge is stored with the lower user ID first, so that the unique key also rejects a friendship
+     * accepted concurrently from the opposite direction. Users who are already friends are skipped.
+     * @param friendIds The IDs of the new friends.
+     * @param userId The ID of the user.
      */
-    private FriendRequestDTO friendRequestToDTO(FriendRequest friendRequest) {
-        FriendRequestDTO requestDTO = new FriendRequestDTO();
+    private void insertFriendships(List<Integer> friendIds, int userId) {
+        List<Object[]> rows = new ArrayList<>(friendIds.size());
+        List<Integer> newFriendIds = new ArrayList<>(friendIds.size());
+
+        for (int friendId : friendIds) {
+            if (!friendGraphService.areFriends(friendId, userId)) { // Cheap check, the graph only holds committed friendships
+                rows.add(new Object[]{Math.min(friendId, userId), Math.max(friendId, userId)});
+                newFriendIds.add(friendId);
+            }
+        }
 
-        requestDTO.setId(friendRequest.getId()); // Set the ID of the friend request
-        requestDTO.setSender(mapper.map(friendRequest.getSender(), UserDTO.class)); // Set the sender of the friend request
-        requestDTO.setReceiver(mapper.map(friendRequest.getReceiver(), UserDTO.class)); // Set the receiver of the friend request
+        if (rows.isEmpty()) {
+            return;
+        }
 
-        return requestDTO;
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_FRIENDSHIP, rows);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) { // 0 means the row was ignored as a duplicate
+                addFriendshipAfterCommit(newFriendIds.get(i), userId, false);
+            } else if (counts[i] == Statement.SUCCESS_NO_INFO) { // E.g. rewritten batches, the driver cannot tell an ignored row apart
+                addFriendshipAfterCommit(newFriendIds.get(i), userId, true);
+            }
+        }
     }
 
     /**
-     * Method to check if a friend request already exists between two users.
-     * @param sender The sender of the friend request.
-     * @param receiver The receiver of the friend request.
-     * @return True if the friend request exists, false otherwise.
+     * Method to add a friendship to the friend graph and notify both users once the transaction storing it committed.
+     * @param userId The ID of the first user.
+     * @param otherId The ID of the second user.
+     * @param unconfirmed Whether the insert may have been ignored, so that a friendship already in the graph is skipped.
      */
-    private boolean checkFriendRequestExists(User sender, User receiver) {
-        return (
-                friendRequestRepository.findBySenderAndReceiver(sender, receiver).isPresent() // Check if the friend request exists in one direction
-                        || friendRequestRepository.findBySenderAndReceiver(receiver, sender).isPresent() // Check if the friend request exists in the opposite direction
-        );
+    private void addFriendshipAfterCommit(int userId, int otherId, boolean unconfirmed) {
+        afterCommit(() -> {
+            if (unconfirmed && friendGraphService.areFriends(userId, otherId)) {
+                return; // Committed by a concurrent request, which already updated the graph and notified both users
+            }
+
+            friendGraphService.addFriendship(userId, otherId);
+            friendSuggestionService.friendshipAdded(userId, otherId);
+
+            notificationService.publish(userId, NotificationService.FRIENDSHIP_EVENT,
+                    new UserDTO(otherId, userSearchService.getUsername(otherId))); // Each user is told about the other one
+            notificationService.publish(otherId, NotificationService.FRIENDSHIP_EVENT,
+                    new UserDTO(userId, userSearchService.getUsername(userId)));
+        });
     }
 
     /**
-     * Method to convert a list of User entities to a list of UserDTO.
-     * @param users The list of User entities.
-     * @return A list of UserDTO.
+     * Method to run an action once the current transaction committed, or right away without a transaction.
+     * @param action The action to run.
      */
-    private List<UserDTO> userListToUserDTO(List<User> users) {
-        List<UserDTO> usersDTO = new ArrayList<>();
-
-        for (User user : users) {
-            usersDTO.add(mapper.map(user, UserDTO.class)); // Map each user to a UserDTO
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
         }
+    }
 
-        return usersDTO;
+    /**
+     * Method to convert a FriendRequest to a FriendRequestDTO.
+     * @param friendRequest The FriendRequest to convert.
+     * @return A FriendRequestDTO representing the friend request.
+     */
+    private FriendRequestDTO friendRequestToDTO(FriendRequest friendRequest) {
+        FriendRequestDTO requestDTO = new FriendRequestDTO();
+
+        requestDTO.setId(friendRequest.getId()); // Set the ID of the friend request
+        requestDTO.setSender(mapper.toUserDTO(friendRequest.getSender())); // Set the sender of the friend request
+        requestDTO.setReceiver(mapper.toUserDTO(friendRequest.getReceiver())); // Set the receiver of the friend request
+
+        return requestDTO;
     }
 }
\ No newline at end of file
@@ -57,7 +57,19 @@ export const signup = async (authContext: AuthContext, formData: SignupData): Pr
     }
 }
 
-export const refreshToken = async () => {
+// Refresh request in flight, shared by concurrent callers because every refresh token can be used only once
+let pendingRefresh: Promise<void> | null = null;
+
+export const refreshToken = () => {
+    if (!pendingRefresh) {
+        pendingRefresh = requestRefreshToken().finally(() => {
+            pendingRefresh = null;
+        });
+    }
+    return pendingRefresh;
+}
+
+const requestRefreshToken = async () => {
 
     try{
         const response = await apiClient.get('auth/refreshToken', {
@@ -74,11 +86,20 @@ export const refreshToken = async () => {
 
 }
 
+// Login check in flight, shared by components that check the login on mount at the same time
+let pendingCheckLogin: Promise<any> | null = null;
+
 export const checkLogin = async (authContext: AuthContext)=> {
-    try{
-        const response = await apiClient.get('auth/checkLogin', {
+    if (!pendingCheckLogin) {
+        pendingCheckLogin = apiClient.get('auth/checkLogin', {
             withCredentials: true
+        }).finally(() => {
+            pendingCheckLogin = null;
         });
+    }
+
+    try{
+        const response = await pendingCheckLogin;
         localStorage.clear();
         localStorage.setItem("jwt-token", response.data.token);
         localStorage.setItem("expires", Date.now() + response.data.expires);
@@ -1,9 +1,12 @@
 import apiClient from "../../apiClient.ts";
 
-export const getRecipeImage = async (id: number, abortController: AbortController): Promise<{success: boolean, data?: any}> => {
+export type RecipeImageSize = 'thumbnail' | 'card' | 'full';
+
+export const getRecipeImage = async (id: number, abortController: AbortController, size: RecipeImageSize = 'full'): Promise<{success: boolean, data?: any}> => {
 
     try{
         const response = await apiClient.get(`/recipe/image/${id}`, {
+            params: {size},
             responseType: 'arraybuffer',
             signal: abortController.signal
         });
@@ -1,8 +1,8 @@
 import apiClient from "../../apiClient.ts";
 
-export const searchRecipe = async (title: string) => {
+export const searchRecipe = async (title: string, cursor?: string) => {
     try{
-        const response = await apiClient.get(`/recipe/search?title=${title}`);
+        const response = await apiClient.get('/recipe/search', {params: {title, cursor}});
         return response.data;
     } catch (error){
         console.error("Error while fetching recipe", error);
@@ -1,8 +1,8 @@
 import apiClient from "../../apiClient.ts";
 
-export const searchUsers = async (username: string) => {
+export const searchUsers = async (username: string, cursor?: string) => {
     try{
-        const response = await apiClient.get(`/users/search?username=${username}`);
+        const response = await apiClient.get('/users/search', {params: {username, cursor}});
         return response.data;
     } catch (error) {
         console.error("Error while accepting friendRequest", error);
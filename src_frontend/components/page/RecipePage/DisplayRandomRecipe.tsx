@@ -40,8 +40,8 @@ function DisplayRandomRecipe() {
     return (
         <>
             {recipe ? (
-                // If a recipe is fetched, render the RecipePage component with the recipe data
-                <RecipePage recipe={recipe} />
+                // If a recipe is fetched, render the RecipePage component with the recipe data and the smaller card image
+                <RecipePage recipe={recipe} imageSize="card" />
             ) : (
                 // If no recipe is fetched, display a loading message
                 <p>Loading ...</p>
@@ -1,12 +1,12 @@
 import React, { useEffect, useState } from "react";
 import StarRating from "../../StarRating.tsx";
 import { rateRecipe } from "../../../api/endpoints/recipes/rateRecipe.ts";
-import { getRecipeImage } from "../../../api/endpoints/recipes/getRecipeImage.ts";
+import { getRecipeImage, RecipeImageSize } from "../../../api/endpoints/recipes/getRecipeImage.ts";
 import { DetailedRecipe } from "../../../types/recipe.types.ts";
 import styles from "./RecipePage.module.css";
 import CircleGraphic from "../../circleTime/CircleGraphic.tsx";
 
-function RecipePage({ recipe }: { recipe: DetailedRecipe }) {
+function RecipePage({ recipe, imageSize = 'full' }: { recipe: DetailedRecipe, imageSize?: RecipeImageSize }) {
     // State to store the URL of the recipe image
     const [imageUrl, setImageUrl] = useState<string | null>(null);
 
@@ -25,7 +25,7 @@ function RecipePage({ recipe }: { recipe: DetailedRecipe }) {
             if (!recipe.id) return;
 
             try {
-                const response = await getRecipeImage(recipe.id, abortController);
+                const response = await getRecipeImage(recipe.id, abortController, imageSize);
 
                 if (response.success) {
                     // Convert the response data to a Blob and create a URL for the image
@@ -47,7 +47,7 @@ function RecipePage({ recipe }: { recipe: DetailedRecipe }) {
             console.log("clean up");
             abortController.abort();
         };
-    }, [recipe]); // Dependency array includes 'recipe' to re-run the effect when 'recipe' changes
+    }, [recipe, imageSize]); // Dependency array includes 'recipe' to re-run the effect when 'recipe' changes
 
     // Function to handle rating the recipe
     function onRate(rating: number) {
@@ -14,7 +14,7 @@ function FriendAdd() {
             if ( value.length > 2) {
                 try{
                     const response = await searchUsers(value);
-                    setUsers(response);
+                    setUsers(response?.items ?? []);
                 } catch (error) {
                     console.error("Error", error);
                 }